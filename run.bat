@@ -1,2 +1,3 @@
 @ECHO off
-java -jar MyLittleTools.jar %1 %2 %3 %4
\ No newline at end of file
+REM class data sharing archive next to the jar, created on first run and refreshed when the jar changes
+java -XX:+AutoCreateSharedArchive -XX:SharedArchiveFile="%~dp0MyLittleTools.jsa" -jar "%~dp0MyLittleTools.jar" %*
\ No newline at end of file
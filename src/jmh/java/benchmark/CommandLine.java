@@ -0,0 +1,55 @@
+package benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Run tool commands the same way Main does.
+ * The tool lives in the default package, which can't be imported, so CommandProcessor is bound by method handle.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+final class CommandLine {
+    private static final MethodHandle CONSTRUCTOR;
+    private static final MethodHandle PROCESS;
+
+    private static final PrintStream CONSOLE = System.out;
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    static {
+        try {
+            Class<?> type = Class.forName("CommandProcessor");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            CONSTRUCTOR = lookup.findConstructor(type, MethodType.methodType(void.class, String.class));
+            PROCESS = lookup.findVirtual(type, "process", MethodType.methodType(void.class, String[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private CommandLine() {}
+
+    /**
+     * Run one command, arguments are the same as on the command line
+     * @param arguments option followed by its arguments
+     * @throws Throwable anything the command throws
+     */
+    static void run(String... arguments) throws Throwable {
+        Object processor = CONSTRUCTOR.invoke(arguments[0]);
+        PROCESS.invoke(processor, arguments);
+    }
+
+    /**
+     * Drop progress lines while measuring, console printing would dominate short operations
+     */
+    static void quiet() {
+        System.setOut(DISCARD);
+    }
+
+    static void restore() {
+        System.setOut(CONSOLE);
+    }
+}
@@ -0,0 +1,96 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * -hash, -hashdir and -dupes on random binary files
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileHashBenchmark {
+    @Param({"67108864"})
+    public long fileSize;
+
+    @Param({"256"})
+    public int treeFiles;
+
+    private Path directory;
+    private Path file1;
+    private Path file2;
+    private Path tree;
+    private int coldRun = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = SyntheticInputs.createDirectory("hash");
+        file1 = directory.resolve("file1.bin");
+        file2 = directory.resolve("file2.bin");
+        SyntheticInputs.writeBinary(file1, fileSize, 1);
+        Files.copy(file1, file2);
+        tree = directory.resolve("tree");
+        SyntheticInputs.writeTree(tree, treeFiles, 256 * 1024);
+        CommandLine.quiet();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        CommandLine.restore();
+        SyntheticInputs.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void compareHash() throws Throwable {
+        CommandLine.run("-hash", file1.toString(), file2.toString());
+    }
+
+    @Benchmark
+    public void compareBytes() throws Throwable {
+        CommandLine.run("-hash", file1.toString(), file2.toString(), "--bytes");
+    }
+
+    /**
+     * Re-run against the same manifest and digest cache, the usual incremental case
+     */
+    @Benchmark
+    public void hashDirectoryWarm() throws Throwable {
+        CommandLine.run("-hashdir", tree.toString(), directory.resolve("warm.manifest").toString(),
+                "--cache", directory.resolve("warm.sql").toString());
+    }
+
+    /**
+     * First run with new manifest and empty digest cache, every file is read
+     */
+    @Benchmark
+    public void hashDirectoryCold() throws Throwable {
+        int run = coldRun++;
+        CommandLine.run("-hashdir", tree.toString(), directory.resolve("cold-" + run + ".manifest").toString(),
+                "--cache", directory.resolve("cold-" + run + ".sql").toString());
+    }
+
+    @Benchmark
+    public void findDuplicates() throws Throwable {
+        CommandLine.run("-dupes", tree.toString());
+    }
+}
@@ -0,0 +1,68 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * -mi on generated jpg images, jpg and png output
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImageBenchmark {
+    @Param({"10"})
+    public int images;
+
+    @Param({"1200"})
+    public int width;
+
+    @Param({"900"})
+    public int height;
+
+    private Path directory;
+    private Path jpgs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = SyntheticInputs.createDirectory("image");
+        jpgs = Files.createDirectory(directory.resolve("jpg"));
+        SyntheticInputs.writeJpegs(jpgs, images, width, height);
+        CommandLine.quiet();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        CommandLine.restore();
+        SyntheticInputs.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void mergeImagesJpg() throws Throwable {
+        CommandLine.run("-mi", jpgs.toString(), directory.resolve("merged.jpg").toString());
+    }
+
+    @Benchmark
+    public void mergeImagesPng() throws Throwable {
+        CommandLine.run("-mi", jpgs.toString(), directory.resolve("merged.png").toString());
+    }
+}
@@ -0,0 +1,93 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * -randpass and -viewsql on a password database in a temp directory.
+ * Every iteration starts from a copy of the same seeded database, so generating passwords measures
+ * the same table and bloom filter size in every iteration and every run
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordBenchmark {
+    // passwords already stored before measuring
+    @Param({"100000"})
+    public int storedPasswords;
+
+    // passwords per benchmark operation
+    @Param({"10000"})
+    public int count;
+
+    private Path directory;
+    private Path seed;
+    private Path work;
+    private String database;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        directory = SyntheticInputs.createDirectory("password");
+        seed = Files.createDirectory(directory.resolve("seed"));
+        work = directory.resolve("work");
+        CommandLine.quiet();
+        CommandLine.run("-randpass", "16", "--count", String.valueOf(storedPasswords),
+                "--database", seed.resolve("database.sql").toString());
+    }
+
+    /**
+     * Replace the database, its bloom filter and wal files with a copy of the seeded ones
+     */
+    @Setup(Level.Iteration)
+    public void resetDatabase() throws IOException {
+        SyntheticInputs.deleteRecursively(work);
+        Files.createDirectory(work);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(seed)) {
+            for (Path file : files) Files.copy(file, work.resolve(file.getFileName()));
+        }
+        database = work.resolve("database.sql").toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        CommandLine.restore();
+        SyntheticInputs.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void generatePassword() throws Throwable {
+        CommandLine.run("-randpass", "16", "--database", database);
+    }
+
+    @Benchmark
+    public void generatePasswords() throws Throwable {
+        CommandLine.run("-randpass", "16", "--count", String.valueOf(count), "--database", database);
+    }
+
+    @Benchmark
+    public void exportPasswords() throws Throwable {
+        CommandLine.run("-viewsql", database, "--format", "csv", "--out", directory.resolve("export.csv").toString());
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * -p, -m and -extractImages on generated jpg images and multi-page pdfs
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PdfBenchmark {
+    @Param({"20"})
+    public int images;
+
+    @Param({"10"})
+    public int documents;
+
+    @Param({"20"})
+    public int pages;
+
+    private Path directory;
+    private Path jpgs;
+    private Path pdfs;
+    private Path imagesPdf;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        directory = SyntheticInputs.createDirectory("pdf");
+        jpgs = Files.createDirectory(directory.resolve("jpg"));
+        pdfs = Files.createDirectory(directory.resolve("pdf"));
+        SyntheticInputs.writeJpegs(jpgs, images, 1600, 1200);
+        SyntheticInputs.writePdfs(pdfs, documents, pages);
+        CommandLine.quiet();
+        // one image per page, input of the extract benchmark
+        imagesPdf = directory.resolve("images.pdf");
+        CommandLine.run("-p", jpgs.toString(), imagesPdf.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        CommandLine.restore();
+        SyntheticInputs.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void jpgsToPdf() throws Throwable {
+        CommandLine.run("-p", jpgs.toString(), directory.resolve("output.pdf").toString());
+    }
+
+    @Benchmark
+    public void mergePdfs() throws Throwable {
+        CommandLine.run("-m", pdfs.toString(), directory.resolve("merged.pdf").toString());
+    }
+
+    @Benchmark
+    public void extractImages() throws Throwable {
+        CommandLine.run("-extractImages", imagesPdf.toString(), directory.resolve("extracted").toString());
+    }
+}
@@ -0,0 +1,150 @@
+package benchmark;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Generate benchmark inputs locally with a fixed seed, so every run measures the same data
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+final class SyntheticInputs {
+    private static final long SEED = 20261018L;
+
+    private SyntheticInputs() {}
+
+    static Path createDirectory(String name) throws IOException {
+        return Files.createTempDirectory("mylittletools-" + name + "-");
+    }
+
+    /**
+     * Image with gradients, shapes and noise, so jpeg compresses it like a photo rather than a flat color
+     */
+    static BufferedImage image(int width, int height, long seed) {
+        SplittableRandom random = new SplittableRandom(SEED ^ seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(24);
+                int r = (x * 255 / width + noise) & 0xFF;
+                int g = (y * 255 / height + noise) & 0xFF;
+                int b = ((x + y) * 127 / (width + height) + noise) & 0xFF;
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        Graphics2D graphics = image.createGraphics();
+        for (int i = 0; i < 12; i++) {
+            graphics.setColor(new Color(random.nextInt(0xFFFFFF)));
+            graphics.fillOval(random.nextInt(width), random.nextInt(height), width / 6, height / 6);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    static byte[] jpeg(int width, int height, long seed) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image(width, height, seed), "jpg", output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Write image-000.jpg, image-001.jpg ...
+     */
+    static void writeJpegs(Path directory, int count, int width, int height) throws IOException {
+        for (int i = 0; i < count; i++) {
+            Files.write(directory.resolve(String.format("image-%03d.jpg", i)), jpeg(width, height, i));
+        }
+    }
+
+    /**
+     * Write document-000.pdf, document-001.pdf ... Every page has text and a photo, the photo is
+     * shared by all pages of a document and is the same in every document, like a letterhead
+     */
+    static void writePdfs(Path directory, int count, int pages) throws IOException {
+        byte[] letterhead = jpeg(640, 480, -1);
+        for (int i = 0; i < count; i++) {
+            try (PDDocument document = new PDDocument()) {
+                PDImageXObject image = JPEGFactory.createFromByteArray(document, letterhead);
+                PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+                for (int p = 0; p < pages; p++) {
+                    PDPage page = new PDPage(PDRectangle.A4);
+                    document.addPage(page);
+                    try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                        content.drawImage(image, 50, 500, 320, 240);
+                        content.beginText();
+                        content.setFont(font, 12);
+                        content.newLineAtOffset(50, 450);
+                        for (int line = 0; line < 30; line++) {
+                            content.showText(String.format("Document %d page %d line %d, synthetic benchmark content.", i, p, line));
+                            content.newLineAtOffset(0, -14);
+                        }
+                        content.endText();
+                    }
+                }
+                document.save(directory.resolve(String.format("document-%03d.pdf", i)).toFile());
+            }
+        }
+    }
+
+    /**
+     * Write random bytes
+     */
+    static void writeBinary(Path path, long size, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(SEED ^ seed);
+        byte[] chunk = new byte[1 << 20];
+        try (OutputStream output = Files.newOutputStream(path)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                random.nextBytes(chunk);
+                output.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+    }
+
+    /**
+     * Tree of random files where every fourth file is a copy of an earlier one
+     */
+    static void writeTree(Path root, int files, int fileSize) throws IOException {
+        for (int i = 0; i < files; i++) {
+            Path directory = Files.createDirectories(root.resolve("dir-" + (i % 8)));
+            Path file = directory.resolve(String.format("file-%04d.bin", i));
+            if (i % 4 == 3) {
+                Files.copy(root.resolve("dir-" + ((i - 3) % 8)).resolve(String.format("file-%04d.bin", i - 3)), file);
+            } else {
+                writeBinary(file, fileSize, i);
+            }
+        }
+    }
+
+    static void deleteRecursively(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) return;
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Commands that run other commands: -batch, -daemon and -client
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+final class BatchCommands {
+    private BatchCommands() {}
+
+    /**
+     * Run one command per line of a file or standard input
+     */
+    static void batch(CommandOptions options) throws Exception {
+        String source = options.get(1);
+        int parallel = options.getInt("--parallel", 1);
+        try (BufferedReader reader = "-".equals(source)
+                ? new BufferedReader(new InputStreamReader(System.in))
+                : Files.newBufferedReader(Paths.get(source))) {
+            new BatchRunner(parallel).run(reader);
+        }
+    }
+
+    /**
+     * Serve commands on a local socket
+     */
+    static void daemon(CommandOptions options) throws Exception {
+        int parallel = options.getInt("--parallel", Runtime.getRuntime().availableProcessors());
+        try (CommandDaemon daemon = new CommandDaemon(options.get(1), parallel)) {
+            daemon.serve();
+        }
+    }
+
+    /**
+     * Send command to daemon
+     */
+    static void client(CommandOptions options) throws Exception {
+        CommandDaemon.send(options.get(1), options.getUnparsed());
+    }
+}
@@ -0,0 +1,214 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run many commands in one JVM, one command per line, so startup, class loading and JIT warm-up are paid once.
+ * A line is written like a command line, arguments with spaces are quoted. Empty lines and lines starting
+ * with # are skipped. In parallel mode lines run side by side, the output of every line is kept together
+ * and printed in line order, a line "wait" waits until all earlier lines are done.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class BatchRunner {
+    private static final String WAIT = "wait";
+
+    private final int parallel;
+    private final AtomicInteger commands = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * Output of one line run in parallel
+     */
+    private record Captured(byte[] out, byte[] err) {}
+
+    /**
+     * @param parallel number of lines running at the same time, 1 runs lines one after another
+     */
+    public BatchRunner(int parallel) {
+        this.parallel = Math.max(1, parallel);
+    }
+
+    /**
+     * Run every line of reader
+     * @param reader batch file or standard input
+     * @throws Exception throw if reading lines fails, failing commands are reported and skipped
+     */
+    public void run(BufferedReader reader) throws Exception {
+        long start = System.nanoTime();
+        if (parallel == 1) {
+            runSequential(reader);
+        } else {
+            runParallel(reader);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[+] Batch: %d commands, %d failed in %.1f s\n", commands.get(), failed.get(), seconds);
+    }
+
+    private void runSequential(BufferedReader reader) throws Exception {
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            List<String> arguments;
+            try {
+                arguments = tokenize(line);
+            } catch (IllegalArgumentException e) {
+                System.err.print(lineFailed(lineNumber, e.getMessage()));
+                continue;
+            }
+            if (arguments.isEmpty() || isWait(arguments)) continue;
+            execute(lineNumber, arguments);
+        }
+    }
+
+    private void runParallel(BufferedReader reader) throws Exception {
+        Deque<Future<Captured>> pending = new ArrayDeque<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallel)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                List<String> arguments;
+                try {
+                    arguments = tokenize(line);
+                } catch (IllegalArgumentException e) {
+                    // keep the message in line order with the output of running lines
+                    byte[] message = lineFailed(lineNumber, e.getMessage()).getBytes();
+                    pending.add(CompletableFuture.completedFuture(new Captured(new byte[0], message)));
+                    continue;
+                }
+                if (arguments.isEmpty()) continue;
+                if (isWait(arguments)) {
+                    printDone(pending, 0);
+                    continue;
+                }
+                int number = lineNumber;
+                pending.add(executor.submit(() -> capture(number, arguments)));
+                // keep a few lines queued behind the running ones, print finished lines as soon as they are in order
+                printDone(pending, parallel * 4);
+            }
+            printDone(pending, 0);
+        }
+    }
+
+    /**
+     * Print finished lines from the head of the queue, block while more than maxPending lines are left
+     */
+    private void printDone(Deque<Future<Captured>> pending, int maxPending) throws Exception {
+        while (!pending.isEmpty() && (pending.size() > maxPending || pending.peek().isDone())) {
+            Captured captured = pending.poll().get();
+            ConsoleRouter.print(captured.out(), captured.err());
+        }
+    }
+
+    private Captured capture(int lineNumber, List<String> arguments) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        ConsoleRouter.run(new PrintStream(out, true), new PrintStream(err, true), () -> {
+            execute(lineNumber, arguments);
+            return null;
+        });
+        return new Captured(out.toByteArray(), err.toByteArray());
+    }
+
+    /**
+     * Run one command, failure is logged and counted instead of stopping the batch
+     * @param lineNumber line of the command shown in failure message, 0 for a single command
+     * @param arguments option followed by its arguments
+     * @return true if command succeeded
+     */
+    boolean execute(int lineNumber, List<String> arguments) {
+        commands.incrementAndGet();
+        String[] args = arguments.toArray(String[]::new);
+        try {
+            new CommandProcessor(args[0]).process(args);
+            return true;
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            Main.logException(e, args);
+            System.err.printf("[!] %s failed: %s (%s)\n", (lineNumber > 0) ? "Line " + lineNumber : "Command",
+                    String.join(" ", arguments), Objects.requireNonNullElse(e.getLocalizedMessage(), e.toString()));
+            return false;
+        }
+    }
+
+    /**
+     * Count a line that can't be parsed as failed command
+     * @return failure message
+     */
+    private String lineFailed(int lineNumber, String message) {
+        commands.incrementAndGet();
+        failed.incrementAndGet();
+        return String.format("[!] Line %d failed: %s\n", lineNumber, message);
+    }
+
+    private static boolean isWait(List<String> arguments) {
+        return arguments.size() == 1 && WAIT.equals(arguments.get(0));
+    }
+
+    /**
+     * Split line into arguments like a shell does. Double or single quotes keep spaces,
+     * inside double quotes \" and \\ are escapes, any other backslash is kept so windows paths work.
+     * @param line one batch line
+     * @return arguments, empty for blank and comment lines
+     */
+    static List<String> tokenize(String line) {
+        List<String> arguments = new ArrayList<>();
+        String trimmed = line.strip();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) return arguments;
+        StringBuilder current = new StringBuilder();
+        boolean inArgument = false;
+        char quote = 0;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else if (quote == '"' && c == '\\' && i + 1 < trimmed.length()
+                        && (trimmed.charAt(i + 1) == '"' || trimmed.charAt(i + 1) == '\\')) {
+                    current.append(trimmed.charAt(++i));
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArgument = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArgument) arguments.add(current.toString());
+                current.setLength(0);
+                inArgument = false;
+            } else {
+                current.append(c);
+                inArgument = true;
+            }
+        }
+        if (quote != 0) throw new IllegalArgumentException("Unclosed quote: " + line);
+        if (inArgument) arguments.add(current.toString());
+        return arguments;
+    }
+
+    /**
+     * Quote arguments so {@link #tokenize} gives them back unchanged
+     * @param arguments arguments
+     * @return one batch line
+     */
+    static String quote(List<String> arguments) {
+        StringBuilder line = new StringBuilder();
+        for (String argument : arguments) {
+            if (!line.isEmpty()) line.append(' ');
+            line.append('"').append(argument.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return line.toString();
+    }
+}
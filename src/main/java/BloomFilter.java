@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bloom filter over fixed size digests, bits are kept in an off-heap direct buffer.
+ * Digests are already uniformly distributed, so bit positions are taken from the digest bytes
+ * with double hashing instead of hashing again.
+ * The filter can be saved to a file and loaded back, it remembers the last database row id it covers.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class BloomFilter {
+    private static final int MAGIC = 0x424C4F4D;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+
+    // about 0.3% false positive rate at full capacity
+    private static final int BITS_PER_ENTRY = 12;
+    private static final int HASHES = 8;
+
+    // direct buffer is indexed by int
+    private static final long MAX_BITS = (Integer.MAX_VALUE - 8L) * 8;
+
+    private final ByteBuffer bits;
+    private final long bitCount;
+    private final long capacity;
+    private long entries;
+    private long lastId;
+    private boolean modified;
+
+    /**
+     * Create empty filter
+     * @param capacity expected number of entries
+     */
+    public BloomFilter(long capacity) {
+        this(capacity, Math.min(Math.max(capacity, 1) * BITS_PER_ENTRY, MAX_BITS));
+    }
+
+    private BloomFilter(long capacity, long bitCount) {
+        this.capacity = capacity;
+        this.bitCount = bitCount;
+        this.bits = ByteBuffer.allocateDirect((int) ((bitCount + 7) / 8));
+        this.modified = true;
+    }
+
+    /**
+     * Load filter saved by {@link #save}
+     * @param path filter file
+     * @return filter, null if file does not exist or is not a valid filter
+     * @throws IOException throw if file can't be read
+     */
+    public static BloomFilter load(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (!readFully(channel, header)) return null;
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) return null;
+            long bitCount = header.getLong();
+            long capacity = header.getLong();
+            long entries = header.getLong();
+            long lastId = header.getLong();
+            if (bitCount <= 0 || bitCount > MAX_BITS || channel.size() != HEADER_SIZE + (bitCount + 7) / 8) return null;
+
+            BloomFilter filter = new BloomFilter(capacity, bitCount);
+            if (!readFully(channel, filter.bits)) return null;
+            filter.bits.clear();
+            filter.entries = entries;
+            filter.lastId = lastId;
+            filter.modified = false;
+            return filter;
+        }
+    }
+
+    /**
+     * Save filter through a temp file, so a crash never leaves a half written filter behind
+     * @param path filter file
+     * @throws IOException throw if file can't be written
+     */
+    public void save(Path path) throws IOException {
+        if (!modified) return;
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(bitCount).putLong(capacity).putLong(entries).putLong(lastId);
+            header.flip();
+            while (header.hasRemaining()) channel.write(header);
+            ByteBuffer data = bits.duplicate().clear();
+            while (data.hasRemaining()) channel.write(data);
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        modified = false;
+    }
+
+    /**
+     * Add digest
+     * @param digest at least 16 bytes
+     */
+    public void add(byte[] digest) {
+        long h1 = readLong(digest, 0);
+        long h2 = readLong(digest, 8) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int index = (int) (bit >>> 3);
+            bits.put(index, (byte) (bits.get(index) | (1 << (bit & 7))));
+        }
+        entries++;
+        modified = true;
+    }
+
+    /**
+     * Check digest
+     * @param digest at least 16 bytes
+     * @return false if digest was definitely never added
+     */
+    public boolean mightContain(byte[] digest) {
+        long h1 = readLong(digest, 0);
+        long h2 = readLong(digest, 8) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 3)) & (1 << (bit & 7))) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param more number of entries about to be added
+     * @return true if the filter keeps its false positive rate after adding them
+     */
+    public boolean hasRoomFor(long more) {
+        return entries + more <= capacity;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) == -1) return false;
+        }
+        return true;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(long lastId) {
+        if (this.lastId != lastId) modified = true;
+        this.lastId = lastId;
+    }
+}
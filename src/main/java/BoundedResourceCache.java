@@ -0,0 +1,260 @@
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
+import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PDF resource cache with size-weighted LRU eviction under a byte budget.
+ * Evicted resources are kept behind soft references, so they can still be reused until the GC needs the memory.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class BoundedResourceCache implements ResourceCache {
+    // weight of small resources like graphics states and color spaces
+    private static final long SMALL_RESOURCE_WEIGHT = 1024;
+
+    /**
+     * Counters, can be shared by caches of several documents
+     */
+    public static class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder softHits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getSoftHits() {
+            return softHits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getEvictions() {
+            return evictions.sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, soft hits=%d, misses=%d, evictions=%d",
+                    getHits(), getSoftHits(), getMisses(), getEvictions());
+        }
+    }
+
+    /**
+     * Cached resource with its estimated size in bytes
+     */
+    private record Entry(Object value, long weight) {}
+
+    /**
+     * Soft reference that remembers its key, so cleared references can be dropped from the map
+     */
+    private static class SoftEntry extends SoftReference<Entry> {
+        private final COSObject key;
+
+        SoftEntry(COSObject key, Entry entry, ReferenceQueue<Entry> queue) {
+            super(entry, queue);
+            this.key = key;
+        }
+    }
+
+    private final long maxBytes;
+    private final Stats stats;
+    private final LinkedHashMap<COSObject, Entry> lru = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<COSObject, SoftEntry> evicted = new HashMap<>();
+    private final ReferenceQueue<Entry> clearedQueue = new ReferenceQueue<>();
+    private long currentBytes = 0;
+
+    /**
+     * Constructor
+     * @param maxBytes byte budget of strongly cached resources
+     * @param stats counters to update
+     */
+    public BoundedResourceCache(long maxBytes, Stats stats) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.stats = stats;
+    }
+
+    /**
+     * Constructor with its own counters
+     * @param maxBytes byte budget of strongly cached resources
+     */
+    public BoundedResourceCache(long maxBytes) {
+        this(maxBytes, new Stats());
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    /**
+     * Look up resource, soft referenced entries that are still alive are moved back into the LRU
+     */
+    private synchronized <T> T get(COSObject indirect, Class<T> type) {
+        if (indirect == null) return null;
+        purgeCleared();
+        Entry entry = lru.get(indirect);
+        if (entry != null && type.isInstance(entry.value())) {
+            stats.hits.increment();
+            return type.cast(entry.value());
+        }
+        SoftEntry softEntry = evicted.remove(indirect);
+        entry = (softEntry != null) ? softEntry.get() : null;
+        if (entry != null && type.isInstance(entry.value())) {
+            stats.softHits.increment();
+            store(indirect, entry);
+            return type.cast(entry.value());
+        }
+        stats.misses.increment();
+        return null;
+    }
+
+    private synchronized void put(COSObject indirect, Object value, long weight) {
+        if (indirect == null || value == null) return;
+        purgeCleared();
+        evicted.remove(indirect);
+        store(indirect, new Entry(value, weight));
+    }
+
+    /**
+     * Insert entry and evict least recently used entries until the budget fits
+     */
+    private void store(COSObject indirect, Entry entry) {
+        Entry previous = lru.put(indirect, entry);
+        if (previous != null) currentBytes -= previous.weight();
+        currentBytes += entry.weight();
+        Iterator<Map.Entry<COSObject, Entry>> iterator = lru.entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<COSObject, Entry> eldest = iterator.next();
+            iterator.remove();
+            currentBytes -= eldest.getValue().weight();
+            evicted.put(eldest.getKey(), new SoftEntry(eldest.getKey(), eldest.getValue(), clearedQueue));
+            stats.evictions.increment();
+        }
+    }
+
+    /**
+     * Drop map entries whose soft reference was cleared by the GC
+     */
+    private void purgeCleared() {
+        SoftEntry cleared;
+        while ((cleared = (SoftEntry) clearedQueue.poll()) != null) {
+            evicted.remove(cleared.key, cleared);
+        }
+    }
+
+    /**
+     * Estimate memory of an XObject, images may hold their decoded pixels
+     */
+    private static long weightOf(PDXObject xobject) {
+        long weight = xobject.getCOSObject().getLength();
+        if (xobject instanceof PDImageXObject image) {
+            weight += (long) image.getWidth() * image.getHeight() * 4;
+        }
+        return Math.max(weight, SMALL_RESOURCE_WEIGHT);
+    }
+
+    /**
+     * Estimate memory of a font, parsed font tables take about twice the embedded font file
+     */
+    private static long weightOf(PDFont font) {
+        long weight = 4 * SMALL_RESOURCE_WEIGHT;
+        PDFontDescriptor descriptor = font.getFontDescriptor();
+        if (descriptor != null) {
+            for (PDStream fontFile : new PDStream[]{descriptor.getFontFile(), descriptor.getFontFile2(), descriptor.getFontFile3()}) {
+                if (fontFile != null) weight += 2 * fontFile.getCOSObject().getLength();
+            }
+        }
+        return weight;
+    }
+
+    @Override
+    public PDFont getFont(COSObject indirect) {
+        return get(indirect, PDFont.class);
+    }
+
+    @Override
+    public PDColorSpace getColorSpace(COSObject indirect) {
+        return get(indirect, PDColorSpace.class);
+    }
+
+    @Override
+    public PDExtendedGraphicsState getExtGState(COSObject indirect) {
+        return get(indirect, PDExtendedGraphicsState.class);
+    }
+
+    @Override
+    public PDShading getShading(COSObject indirect) {
+        return get(indirect, PDShading.class);
+    }
+
+    @Override
+    public PDAbstractPattern getPattern(COSObject indirect) {
+        return get(indirect, PDAbstractPattern.class);
+    }
+
+    @Override
+    public PDPropertyList getProperties(COSObject indirect) {
+        return get(indirect, PDPropertyList.class);
+    }
+
+    @Override
+    public PDXObject getXObject(COSObject indirect) {
+        return get(indirect, PDXObject.class);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDFont font) {
+        put(indirect, font, weightOf(font));
+    }
+
+    @Override
+    public void put(COSObject indirect, PDColorSpace colorSpace) {
+        put(indirect, colorSpace, SMALL_RESOURCE_WEIGHT);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDExtendedGraphicsState extGState) {
+        put(indirect, extGState, SMALL_RESOURCE_WEIGHT);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDShading shading) {
+        put(indirect, shading, SMALL_RESOURCE_WEIGHT);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDAbstractPattern pattern) {
+        put(indirect, pattern, SMALL_RESOURCE_WEIGHT);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDPropertyList propertyList) {
+        put(indirect, propertyList, SMALL_RESOURCE_WEIGHT);
+    }
+
+    @Override
+    public void put(COSObject indirect, PDXObject xobject) {
+        put(indirect, xobject, weightOf(xobject));
+    }
+}
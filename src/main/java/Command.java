@@ -0,0 +1,14 @@
+/**
+ * Handler of one command line option
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+@FunctionalInterface
+interface Command {
+    /**
+     * Run the command
+     * @param options parsed arguments, the option itself at index 0
+     * @throws Exception anything the command throws
+     */
+    void run(CommandOptions options) throws Exception;
+}
@@ -0,0 +1,139 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Keep one warm JVM listening on a local Unix domain socket, thin clients send one command per connection
+ * and get its console output back. Paths in commands are resolved in the working directory of the daemon.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class CommandDaemon implements AutoCloseable {
+    private static final String STOP = "stop";
+
+    private final Path socketPath;
+    private final ServerSocketChannel server;
+    private final Semaphore permits;
+
+    /**
+     * Bind socket, a socket file left by a daemon that is gone is replaced
+     * @param socketPath socket file path
+     * @param parallel number of commands running at the same time
+     * @throws IOException throw if socket can't be bound or a daemon already listens on it
+     */
+    public CommandDaemon(String socketPath, int parallel) throws IOException {
+        this.socketPath = Path.of(socketPath).toAbsolutePath();
+        this.permits = new Semaphore(Math.max(1, parallel));
+        if (Files.exists(this.socketPath)) {
+            if (isListening(this.socketPath)) throw new IOException("Daemon already listening on " + this.socketPath);
+            Files.delete(this.socketPath);
+        }
+        this.server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        this.server.bind(UnixDomainSocketAddress.of(this.socketPath));
+        try {
+            // commands run with the rights of the daemon owner, nobody else may connect
+            Files.setPosixFilePermissions(this.socketPath, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // not a posix file system, socket keeps the default permissions
+        }
+    }
+
+    private static boolean isListening(Path socketPath) {
+        try {
+            SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath));
+            channel.close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Accept connections until a client sends "stop"
+     * @throws IOException throw if accepting fails
+     */
+    public void serve() throws IOException {
+        ConsoleRouter.install();
+        System.out.printf("[+] Listening on %s, %d commands at a time\n", socketPath, permits.availablePermits());
+        try (ExecutorService executor = Executors.newCachedThreadPool()) {
+            while (true) {
+                SocketChannel channel;
+                try {
+                    channel = server.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                executor.submit(() -> handle(channel));
+            }
+        }
+        System.out.println("[+] Daemon stopped");
+    }
+
+    /**
+     * Read one command line from client, run it and send its console output back
+     */
+    private void handle(SocketChannel channel) {
+        try (channel;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+             PrintStream output = new PrintStream(Channels.newOutputStream(channel), true, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            List<String> arguments = BatchRunner.tokenize((line != null) ? line : "");
+            if (arguments.isEmpty()) return;
+            if (arguments.size() == 1 && STOP.equals(arguments.get(0))) {
+                output.println("[+] Stopping daemon");
+                server.close();
+                return;
+            }
+            permits.acquire();
+            try {
+                ConsoleRouter.run(output, output, () -> new BatchRunner(1).execute(0, arguments));
+            } finally {
+                permits.release();
+            }
+        } catch (Exception e) {
+            System.err.printf("[!] Connection failed: %s\n", e.getMessage());
+        }
+    }
+
+    /**
+     * Send one command to a daemon and copy its output to the console
+     * @param socketPath socket file path of the daemon
+     * @param arguments option followed by its arguments, or "stop"
+     * @throws IOException throw if daemon can't be reached
+     */
+    public static void send(String socketPath, List<String> arguments) throws IOException {
+        if (arguments.isEmpty()) throw new IllegalArgumentException("Missing command");
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(Path.of(socketPath).toAbsolutePath()))) {
+            OutputStream output = Channels.newOutputStream(channel);
+            output.write((BatchRunner.quote(arguments) + "\n").getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            channel.shutdownOutput();
+            InputStream input = Channels.newInputStream(channel);
+            input.transferTo(System.out);
+            System.out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        Files.deleteIfExists(socketPath);
+    }
+}
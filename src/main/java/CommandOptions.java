@@ -0,0 +1,135 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Split command line arguments into positional arguments and "--name value" flags
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class CommandOptions {
+    // flags that never take a value
+    private static final Set<String> SWITCHES = Set.of("--bytes", "--update", "--force", "--schema", "--stats", "--watch", "--recursive",
+            "--no-compress");
+
+    private final List<String> positional = new ArrayList<>();
+    private final Map<String, String> flags = new HashMap<>();
+    private final List<String> unparsed;
+
+    /**
+     * Constructor
+     * @param arguments raw command line arguments, the option itself at index 0
+     */
+    public CommandOptions(String[] arguments) {
+        this(arguments, arguments.length);
+    }
+
+    /**
+     * Parse only the leading arguments, the rest is kept as is for another command line
+     * @param arguments raw command line arguments, the option itself at index 0
+     * @param parsedCount number of arguments to parse
+     */
+    public CommandOptions(String[] arguments, int parsedCount) {
+        parsedCount = Math.min(parsedCount, arguments.length);
+        this.unparsed = List.of(arguments).subList(parsedCount, arguments.length);
+        for (int i = 0; i < parsedCount; i++) {
+            String argument = arguments[i];
+            if (!argument.startsWith("--")) {
+                positional.add(argument);
+            } else if (SWITCHES.contains(argument)) {
+                flags.put(argument, "true");
+            } else {
+                if (i + 1 >= parsedCount) throw new IllegalArgumentException("Missing value for " + argument);
+                flags.put(argument, arguments[++i]);
+            }
+        }
+    }
+
+    /**
+     * Get positional argument
+     * @param index argument index, 0 is the option itself
+     * @return argument value
+     */
+    public String get(int index) {
+        if (index >= positional.size()) throw new IllegalArgumentException("Missing argument " + index);
+        return positional.get(index);
+    }
+
+    /**
+     * Get all positional arguments starting from index
+     * @param fromIndex first argument index
+     * @return list of arguments
+     */
+    public List<String> getFrom(int fromIndex) {
+        if (fromIndex >= positional.size()) return List.of();
+        return positional.subList(fromIndex, positional.size());
+    }
+
+    /**
+     * @return arguments left unparsed, empty unless constructed with a parsed count
+     */
+    public List<String> getUnparsed() {
+        return unparsed;
+    }
+
+    /**
+     * Get all the files from the directory given as positional argument, filtered by file extension
+     * and sorted in natural order, subdirectories are included with --recursive
+     * @param index argument index of the directory
+     * @param fileExt what is file extension for filter
+     * @return list of specific file, null if the argument is not a directory
+     * @throws IOException throw if the directory can't be listed
+     */
+    public List<File> getFiles(int index, String fileExt) throws IOException {
+        if (!new File(get(index)).isDirectory()) return null;
+        return getDiscovery(index, fileExt).list().stream().map(FileDiscovery.Entry::toFile).toList();
+    }
+
+    /**
+     * Get file discovery for the directory given as positional argument, subdirectories are included with --recursive
+     * @param index argument index of the directory
+     * @param fileExt what is file extension for filter, null for every file
+     * @return file discovery
+     */
+    public FileDiscovery getDiscovery(int index, String fileExt) {
+        return new FileDiscovery(get(index), fileExt, has("--recursive"));
+    }
+
+    /**
+     * @return number of positional arguments, include the option itself
+     */
+    public int size() {
+        return positional.size();
+    }
+
+    /**
+     * @param flag flag name, e.g. "--bytes"
+     * @return true if the flag is given
+     */
+    public boolean has(String flag) {
+        return flags.containsKey(flag);
+    }
+
+    public String getString(String flag, String defaultValue) {
+        return flags.getOrDefault(flag, defaultValue);
+    }
+
+    public int getInt(String flag, int defaultValue) {
+        String value = flags.get(flag);
+        return (value != null) ? Integer.parseInt(value) : defaultValue;
+    }
+
+    public long getLong(String flag, long defaultValue) {
+        String value = flags.get(flag);
+        return (value != null) ? Long.parseLong(value) : defaultValue;
+    }
+
+    public double getDouble(String flag, double defaultValue) {
+        String value = flags.get(flag);
+        return (value != null) ? Double.parseDouble(value) : defaultValue;
+    }
+}
@@ -0,0 +1,67 @@
+import java.util.Map;
+
+/**
+ * Map every option string to its handler. Options are looked up by name, so two options can't
+ * collide like hash codes can. Handlers are lambdas rather than method references, a handler class,
+ * and with it PDFBox, ImageIO or sqlite-jdbc, is only loaded when its option actually runs.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+final class CommandRegistry {
+    static final String CLIENT = "-client";
+
+    private static final Map<String, Command> COMMANDS = Map.ofEntries(
+            // compare two file hash value
+            Map.entry("-hash", options -> FileCommands.compareHash(options)),
+            // hash directory tree into manifest
+            Map.entry("-hashdir", options -> FileCommands.hashDirectory(options)),
+            // find duplicate files
+            Map.entry("-dupes", options -> FileCommands.findDuplicates(options)),
+            // convert WEBP image to JPG format
+            Map.entry("-w", options -> ImageCommands.webpToJpg(options)),
+            // convert JPG files into one single PDF file
+            Map.entry("-p", options -> PdfCommands.jpgsToPdf(options)),
+            // convert WEBP files into one single PDF file
+            Map.entry("-wp", options -> PdfCommands.webpToPdf(options)),
+            // help message
+            Map.entry("-h", options -> Main.printHelp()),
+            // merge multi PDFs into single PDF
+            Map.entry("-m", options -> PdfCommands.mergePdfs(options)),
+            // merge multi JPGs into single JPG
+            Map.entry("-mi", options -> ImageCommands.mergeImages(options)),
+            Map.entry("-extractImages", options -> PdfCommands.extractImages(options)),
+            Map.entry("-randpass", options -> DatabaseCommands.randomPassword(options)),
+            Map.entry("-viewsql", options -> DatabaseCommands.viewSql(options)),
+            // run many commands in one JVM
+            Map.entry("-batch", options -> BatchCommands.batch(options)),
+            // serve commands on a local socket
+            Map.entry("-daemon", options -> BatchCommands.daemon(options)),
+            // send one command to a daemon
+            Map.entry(CLIENT, options -> BatchCommands.client(options))
+    );
+
+    private CommandRegistry() {}
+
+    /**
+     * Find handler of option
+     * @param option option like "-hash"
+     * @return handler
+     * @throws IllegalArgumentException if option is unknown
+     */
+    static Command lookup(String option) {
+        Command command = COMMANDS.get(option);
+        if (command == null) throw new IllegalArgumentException("Unknown option: " + option);
+        return command;
+    }
+
+    /**
+     * Number of leading arguments that belong to the option itself,
+     * -client hands everything after the socket over to the daemon untouched
+     * @param option option like "-hash"
+     * @param arguments raw arguments
+     * @return number of arguments to parse
+     */
+    static int parsedCount(String option, String[] arguments) {
+        return CLIENT.equals(option) ? Math.min(arguments.length, 2) : arguments.length;
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+
+/**
+ * System.out and System.err that send every write to the streams of the calling thread,
+ * so commands sharing one JVM keep their console output apart. Threads started by a command
+ * inherit its streams, threads without own streams write to the real console.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+final class ConsoleRouter {
+    private static final PrintStream CONSOLE_OUT = System.out;
+    private static final PrintStream CONSOLE_ERR = System.err;
+
+    private static final InheritableThreadLocal<PrintStream> OUT = new InheritableThreadLocal<>();
+    private static final InheritableThreadLocal<PrintStream> ERR = new InheritableThreadLocal<>();
+
+    private static boolean installed = false;
+
+    private ConsoleRouter() {}
+
+    /**
+     * Forward bytes to the stream of the calling thread
+     */
+    private static class Route extends OutputStream {
+        private final ThreadLocal<PrintStream> target;
+        private final PrintStream console;
+
+        private Route(ThreadLocal<PrintStream> target, PrintStream console) {
+            this.target = target;
+            this.console = console;
+        }
+
+        private PrintStream stream() {
+            PrintStream stream = target.get();
+            return (stream != null) ? stream : console;
+        }
+
+        @Override
+        public void write(int b) {
+            stream().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            stream().write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            stream().flush();
+        }
+    }
+
+    /**
+     * Replace System.out and System.err with routed streams, only the first call does anything
+     */
+    static synchronized void install() {
+        if (installed) return;
+        System.setOut(new PrintStream(new Route(OUT, CONSOLE_OUT), true));
+        System.setErr(new PrintStream(new Route(ERR, CONSOLE_ERR), true));
+        installed = true;
+    }
+
+    /**
+     * Run task with its console output sent to the given streams
+     * @param out stream for System.out
+     * @param err stream for System.err
+     * @param task task to run
+     * @return result of task
+     * @throws Exception anything the task throws
+     */
+    static <T> T run(PrintStream out, PrintStream err, Callable<T> task) throws Exception {
+        install();
+        PrintStream previousOut = OUT.get();
+        PrintStream previousErr = ERR.get();
+        OUT.set(out);
+        ERR.set(err);
+        try {
+            return task.call();
+        } finally {
+            out.flush();
+            err.flush();
+            OUT.set(previousOut);
+            ERR.set(previousErr);
+        }
+    }
+
+    /**
+     * Copy captured bytes to the real console
+     * @param out bytes for standard output
+     * @param err bytes for standard error
+     * @throws IOException throw if console can't be written
+     */
+    static void print(byte[] out, byte[] err) throws IOException {
+        CONSOLE_OUT.write(out);
+        CONSOLE_OUT.flush();
+        CONSOLE_ERR.write(err);
+        CONSOLE_ERR.flush();
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+
+/**
+ * SQLite commands: -randpass and -viewsql, the only commands that load sqlite-jdbc
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+final class DatabaseCommands {
+    private DatabaseCommands() {}
+
+    /**
+     * Random password
+     */
+    static void randomPassword(CommandOptions options) throws Exception {
+        int passLength = Integer.parseInt(options.get(1));
+        long count = options.getLong("--count", 1);
+        String database = options.getString("--database", RandomPasswordGenerator.DATABASE_LOCATION);
+        try (RandomPasswordGenerator passwordGenerator = new RandomPasswordGenerator(passLength, database)) {
+            if (count == 1) {
+                String randomPass = passwordGenerator.generateRandomPassword();
+                System.out.printf("Random Password: %s\n", randomPass);
+            } else {
+                generateRandomPasswords(passwordGenerator, count);
+            }
+        }
+    }
+
+    /**
+     * View sql
+     */
+    static void viewSql(CommandOptions options) throws Exception {
+        SqliteViewer.Format format = SqliteViewer.Format.of(options.getString("--format", "text"));
+        int threads = options.getInt("--threads", 4);
+        try (SqliteViewer sqliteViewer = new SqliteViewer(options.get(1))) {
+            if (options.has("--schema")) {
+                sqliteViewer.printSchema(threads);
+            } else if (options.has("--query")) {
+                sqliteViewer.runQuery(options.getString("--query", null), format, options.getString("--out", null));
+            } else if (options.has("--export-all")) {
+                sqliteViewer.exportAll(options.getString("--export-all", null),
+                        options.has("--format") ? format : SqliteViewer.Format.CSV, threads);
+            } else {
+                sqliteViewer.viewSqliteDatabase(format, options.getString("--out", null),
+                        options.getLong("--limit", -1), options.getLong("--after", 0));
+            }
+        }
+    }
+
+    /**
+     * Generate many unique passwords in one run, one password per line
+     * @param passwordGenerator generator bound to the password database
+     * @param count number of passwords
+     */
+    private static void generateRandomPasswords(RandomPasswordGenerator passwordGenerator, long count) throws SQLException, IOException {
+        long start = System.nanoTime();
+        // System.out flushes on every line, so passwords go through one buffered writer
+        PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16), false);
+        passwordGenerator.generateRandomPasswords(count, writer::println);
+        writer.flush();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[+] Generated %d passwords in %.1f s, %.0f passwords/s, %d checked on database\n",
+                count, seconds, count / Math.max(seconds, 1e-9), passwordGenerator.getDatabaseChecks());
+    }
+}
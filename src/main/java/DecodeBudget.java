@@ -0,0 +1,192 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+
+/**
+ * Memory budget for decoded images, shared by every command running in this JVM.
+ * Decode work is admitted only while the decoded size, estimated from the image header, fits under the
+ * budget, other decoders wait until memory is given back. An image larger than the whole budget is read
+ * subsampled. A command may set a smaller budget of its own with --max-memory, its decodes then count
+ * against both.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public final class DecodeBudget {
+    // half the heap for decoded pixels, the rest is left for encoders, pdf documents and copies
+    private static final DecodeBudget GLOBAL = new DecodeBudget(Runtime.getRuntime().maxMemory() / 2, null);
+
+    private final long capacity;
+    private final DecodeBudget parent;
+    private long used = 0;
+
+    /**
+     * Memory held for one decode, give it back by closing
+     */
+    public final class Permit implements AutoCloseable {
+        private final long bytes;
+        private final Permit parentPermit;
+        private boolean closed = false;
+
+        private Permit(long bytes, Permit parentPermit) {
+            this.bytes = bytes;
+            this.parentPermit = parentPermit;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+            }
+            release(bytes);
+            if (parentPermit != null) parentPermit.close();
+        }
+    }
+
+    /**
+     * Decoded image together with the memory it holds
+     */
+    public record Decoded(BufferedImage image, Permit permit) implements AutoCloseable {
+        @Override
+        public void close() {
+            permit.close();
+        }
+    }
+
+    private DecodeBudget(long capacity, DecodeBudget parent) {
+        if (capacity <= 0) throw new IllegalArgumentException("Decode memory must be positive");
+        this.capacity = capacity;
+        this.parent = parent;
+    }
+
+    /**
+     * Budget of one command
+     * @param options command options, --max-memory MB sets a budget of its own inside the global one
+     * @return budget
+     */
+    public static DecodeBudget of(CommandOptions options) {
+        if (!options.has("--max-memory")) return GLOBAL;
+        return new DecodeBudget(options.getLong("--max-memory", 0) * 1024 * 1024, GLOBAL);
+    }
+
+    /**
+     * @return most bytes one decode may hold
+     */
+    public long getCapacity() {
+        return (parent != null) ? Math.min(capacity, parent.getCapacity()) : capacity;
+    }
+
+    /**
+     * Wait until bytes fit under the budget and hold them. A request larger than the whole budget
+     * is admitted alone once nothing else is held.
+     * @param bytes estimated decoded size
+     * @return permit, close it when the decoded image is no longer used
+     * @throws InterruptedIOException throw if interrupted while waiting
+     */
+    public Permit acquire(long bytes) throws InterruptedIOException {
+        synchronized (this) {
+            try {
+                while (used > 0 && used + bytes > capacity) wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for decode memory");
+            }
+            used += bytes;
+        }
+        // own budget first, waiting for it never holds memory other commands could use
+        Permit parentPermit = null;
+        if (parent != null) {
+            try {
+                parentPermit = parent.acquire(bytes);
+            } catch (InterruptedIOException e) {
+                release(bytes);
+                throw e;
+            }
+        }
+        return new Permit(bytes, parentPermit);
+    }
+
+    private synchronized void release(long bytes) {
+        used -= bytes;
+        notifyAll();
+    }
+
+    /**
+     * Decode an image once its decoded size fits under the budget,
+     * an image larger than the whole budget is read with every n-th pixel only
+     * @param file image file
+     * @param subsampling read every n-th pixel at least, 1 for every pixel
+     * @return decoded image and the memory it holds
+     * @throws IOException throw if image can't be read
+     */
+    public Decoded read(File file, int subsampling) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = (input != null) ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) throw new IOException("Unsupported image: " + file);
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                long fullSize = (long) reader.getWidth(0) * reader.getHeight(0) * bytesPerPixel(reader);
+                int needed = subsamplingFor(fullSize);
+                if (needed > subsampling) {
+                    System.err.printf("[!] %s needs %.1f MB to decode, reading every %d. pixel to fit decode memory\n",
+                            file.getPath(), fullSize / 1048576.0, needed);
+                }
+                int factor = Math.max(needed, Math.max(1, subsampling));
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (factor > 1) param.setSourceSubsampling(factor, factor, 0, 0);
+                Permit permit = acquire(fullSize / ((long) factor * factor));
+                try {
+                    return new Decoded(reader.read(0, param), permit);
+                } catch (IOException | RuntimeException e) {
+                    permit.close();
+                    throw e;
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * @return smallest subsampling factor that brings a decoded size under the budget
+     */
+    public int subsamplingFor(long bytes) {
+        long limit = getCapacity();
+        int factor = 1;
+        while (bytes / ((long) factor * factor) > limit) factor++;
+        return factor;
+    }
+
+    /**
+     * Estimate bytes per decoded pixel from the image type in the header, bands times sample size
+     * @param reader reader with input set
+     * @return bytes per pixel, 4 when the reader can't tell
+     */
+    public static int bytesPerPixel(ImageReader reader) {
+        try {
+            ImageTypeSpecifier type = reader.getRawImageType(0);
+            if (type == null) {
+                Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+                if (!types.hasNext()) return 4;
+                type = types.next();
+            }
+            SampleModel sampleModel = type.getSampleModel(1, 1);
+            int sampleBytes = Math.max(1, DataBuffer.getDataTypeSize(sampleModel.getDataType()) / 8);
+            // packed models keep every pixel in one sample
+            return (sampleModel instanceof SinglePixelPackedSampleModel) ? sampleBytes : sampleModel.getNumBands() * sampleBytes;
+        } catch (IOException | RuntimeException e) {
+            return 4;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache file digest in sqlite database keyed by (path, size, mtime),
+ * so unchanged files are not read again on next run
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class DigestCache implements AutoCloseable {
+    // rows per executeBatch call
+    private static final int BATCH_SIZE = 10_000;
+
+    // sql connection
+    private final Connection sqlConnection;
+
+    /**
+     * One cached digest
+     * @param path absolute file path
+     * @param size file size in bytes
+     * @param modified last modified time in millis
+     * @param digest hex digest
+     */
+    public record Entry(String path, long size, long modified, String digest) {
+        /**
+         * @return true if file size and modify time still match this entry
+         */
+        public boolean matches(long size, long modified) {
+            return this.size == size && this.modified == modified;
+        }
+    }
+
+    /**
+     * Get SQLite Driver connection
+     * @param location the location of sqlite database
+     * @throws ClassNotFoundException throw exception if JDBC is not found
+     * @throws SQLException throw exception if can't get database location
+     */
+    private Connection getSQLiteConnection(String location) throws ClassNotFoundException, SQLException {
+        Class.forName("org.sqlite.JDBC");
+        String formatURL = String.format("jdbc:sqlite:%s", location);
+        return DriverManager.getConnection(formatURL);
+    }
+
+    /**
+     * Constructor
+     * @param location location of cache database, created if not exists
+     */
+    public DigestCache(String location) throws SQLException, ClassNotFoundException {
+        this.sqlConnection = getSQLiteConnection(location);
+        try (Statement statement = this.sqlConnection.createStatement()) {
+            statement.executeUpdate("PRAGMA journal_mode=WAL");
+            statement.executeUpdate("PRAGMA synchronous=NORMAL");
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS digestCache (path TEXT PRIMARY KEY, size INTEGER, mtime INTEGER, digest TEXT)");
+        }
+    }
+
+    /**
+     * Load every cached entry below the given directory in one query
+     * @param root root directory
+     * @return map of absolute path to entry
+     * @throws SQLException throw if any sql exception cause
+     */
+    public Map<String, Entry> loadUnder(Path root) throws SQLException {
+        String prefix = root.toAbsolutePath().normalize().toString();
+        if (!prefix.endsWith(File.separator)) prefix += File.separator;
+        Map<String, Entry> entries = new HashMap<>();
+        String query = "SELECT path, size, mtime, digest FROM digestCache WHERE path >= ? AND path < ?";
+        try (PreparedStatement preparedStatement = this.sqlConnection.prepareStatement(query)) {
+            preparedStatement.setFetchSize(BATCH_SIZE);
+            preparedStatement.setString(1, prefix);
+            preparedStatement.setString(2, prefix + Character.MAX_VALUE);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    Entry entry = new Entry(resultSet.getString(1), resultSet.getLong(2), resultSet.getLong(3), resultSet.getString(4));
+                    entries.put(entry.path(), entry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Store new or changed entries and drop entries of removed files in one transaction
+     * @param updated entries to insert or replace
+     * @param removed paths to delete
+     * @throws SQLException throw if any sql exception cause
+     */
+    public void store(Collection<Entry> updated, Collection<String> removed) throws SQLException {
+        boolean autoCommit = this.sqlConnection.getAutoCommit();
+        this.sqlConnection.setAutoCommit(false);
+        try (PreparedStatement insert = this.sqlConnection.prepareStatement("INSERT OR REPLACE INTO digestCache (path, size, mtime, digest) VALUES (?, ?, ?, ?)");
+             PreparedStatement delete = this.sqlConnection.prepareStatement("DELETE FROM digestCache WHERE path=?")) {
+            int count = 0;
+            for (Entry entry : updated) {
+                insert.setString(1, entry.path());
+                insert.setLong(2, entry.size());
+                insert.setLong(3, entry.modified());
+                insert.setString(4, entry.digest());
+                insert.addBatch();
+                if (++count % BATCH_SIZE == 0) insert.executeBatch();
+            }
+            insert.executeBatch();
+            for (String path : removed) {
+                delete.setString(1, path);
+                delete.addBatch();
+                if (++count % BATCH_SIZE == 0) delete.executeBatch();
+            }
+            delete.executeBatch();
+            this.sqlConnection.commit();
+        } catch (SQLException e) {
+            this.sqlConnection.rollback();
+            throw e;
+        } finally {
+            this.sqlConnection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Close sql resources
+     * @throws SQLException
+     */
+    @Override
+    public void close() throws SQLException {
+        if (this.sqlConnection != null) {
+            this.sqlConnection.close();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Hash every file below a directory and write or verify a manifest.
+ * Manifest line format is the same as sha256sum: "HEX  relative/path"
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class DirectoryHasher implements AutoCloseable {
+    private final Path root;
+    private final int threads;
+    private final DigestCache cache;
+
+    // digest cache database and its sqlite side files, never part of the manifest
+    private final Set<Path> cacheFiles;
+
+    /**
+     * One regular file found while walking the tree
+     */
+    private record FileEntry(Path path, long size, long modified) {}
+
+    /**
+     * Digest result of one file
+     * @param digest hex digest, null if the file can't be read
+     * @param fresh true if the file was read, false if digest came from cache
+     */
+    private record Hashed(FileEntry file, String digest, boolean fresh) {}
+
+    /**
+     * Digests of the tree
+     * @param digests relative path to hex digest, sorted by path
+     * @param unreadable relative paths of files that exist but can't be read
+     */
+    private record TreeDigests(SortedMap<String, String> digests, SortedSet<String> unreadable) {}
+
+    /**
+     * Constructor
+     * @param root directory to hash
+     * @param cacheLocation location of digest cache database
+     * @param threads number of hashing threads
+     */
+    public DirectoryHasher(String root, String cacheLocation, int threads) throws Exception {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        if (!Files.isDirectory(this.root)) throw new IllegalArgumentException("Not a directory: " + root);
+        this.threads = Math.max(1, threads);
+        this.cache = new DigestCache(cacheLocation);
+        Path cachePath = Paths.get(cacheLocation).toAbsolutePath().normalize();
+        this.cacheFiles = Set.of(cachePath, cachePath.resolveSibling(cachePath.getFileName() + "-wal"),
+                cachePath.resolveSibling(cachePath.getFileName() + "-shm"),
+                cachePath.resolveSibling(cachePath.getFileName() + "-journal"));
+    }
+
+    /**
+     * Hash the tree, write manifest if it does not exist yet, otherwise diff tree against it
+     * @param manifest manifest file path
+     * @param update rewrite the manifest after diff
+     */
+    public void run(String manifest, boolean update) throws Exception {
+        Path manifestPath = Paths.get(manifest).toAbsolutePath().normalize();
+        TreeDigests current = hashTree(manifestPath);
+        Map<String, String> previous = new HashMap<>();
+        if (Files.exists(manifestPath)) {
+            previous = readManifest(manifestPath);
+            diff(previous, current);
+            if (!update) return;
+        }
+        // an unreadable file keeps the digest it had, it is not known to have changed
+        SortedMap<String, String> digests = new TreeMap<>(current.digests());
+        for (String path : current.unreadable()) {
+            String oldDigest = previous.get(path);
+            if (oldDigest != null) digests.put(path, oldDigest);
+        }
+        System.out.printf("[+] Writing manifest: %s...", manifestPath);
+        writeManifest(manifestPath, digests);
+        System.out.println("Done!");
+    }
+
+    /**
+     * Walk the tree and hash every file in parallel, reuse cached digest of unchanged files.
+     * Hashing starts while the tree is still being scanned.
+     * @param exclude file to leave out of the result besides the digest cache, normally the manifest itself
+     * @return digests of readable files and paths of unreadable ones
+     */
+    private TreeDigests hashTree(Path exclude) throws Exception {
+        long start = System.nanoTime();
+        Map<String, DigestCache.Entry> cached;
+        try (Metrics.Stage stage = Metrics.stage(Metrics.DB_QUERY)) {
+            cached = cache.loadUnder(root);
+            stage.items(cached.size());
+        }
+
+        System.out.printf("[+] Scanning: %s\n", root);
+        Queue<Hashed> results = new ConcurrentLinkedQueue<>();
+        // a few files per thread wait for hashing, beyond that the scan waits too
+        Semaphore permits = new Semaphore(threads * 4);
+        int totalFiles = 0;
+        long totalBytes = 0;
+        try (FileDiscovery.Feed feed = new FileDiscovery(root.toString(), null, true).feed(FileDiscovery.DEFAULT_CAPACITY);
+             ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            while (feed.hasNext()) {
+                FileDiscovery.Entry entry = feed.next();
+                if (entry.path().equals(exclude) || cacheFiles.contains(entry.path())) continue;
+                FileEntry file = new FileEntry(entry.path(), entry.attributes().size(), entry.attributes().lastModifiedTime().toMillis());
+                totalFiles++;
+                totalBytes += file.size();
+                permits.acquire();
+                executor.submit(() -> {
+                    try {
+                        results.add(digestOf(file, cached.get(file.path().toString())));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            System.out.printf("[+] Scanned %d files, %d bytes\n", totalFiles, totalBytes);
+        }
+
+        SortedMap<String, String> digests = new TreeMap<>();
+        SortedSet<String> unreadable = new TreeSet<>();
+        List<DigestCache.Entry> updated = new ArrayList<>();
+        for (Hashed hashed : results) {
+            FileEntry file = hashed.file();
+            String path = file.path().toString();
+            // unreadable files still exist, their cache row is kept too
+            cached.remove(path);
+            if (hashed.digest() == null) {
+                unreadable.add(relative(file.path()));
+                continue;
+            }
+            digests.put(relative(file.path()), hashed.digest());
+            if (hashed.fresh()) updated.add(new DigestCache.Entry(path, file.size(), file.modified(), hashed.digest()));
+        }
+        // whatever is left in cached map no longer exists on disk
+        try (Metrics.Stage stage = Metrics.stage(Metrics.DB_WRITE)) {
+            cache.store(updated, cached.keySet());
+            stage.items(updated.size() + cached.size());
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[+] Hashed %d files (%d read, %d from cache, %d unreadable) in %.1f s\n",
+                digests.size(), updated.size(), digests.size() - updated.size(), unreadable.size(), seconds);
+        return new TreeDigests(digests, unreadable);
+    }
+
+    /**
+     * Get digest of one file, from cache when size and mtime are unchanged
+     * @return hashed result, its digest is null if the file can't be read
+     */
+    private Hashed digestOf(FileEntry file, DigestCache.Entry cachedEntry) {
+        if (cachedEntry != null && cachedEntry.matches(file.size(), file.modified())) {
+            return new Hashed(file, cachedEntry.digest(), false);
+        }
+        try {
+            return new Hashed(file, FileHasher.toHex(FileHasher.hash(file.path())), true);
+        } catch (IOException e) {
+            System.err.printf("[!] Can't read: %s (%s)\n", file.path(), e.getMessage());
+            return new Hashed(file, null, false);
+        }
+    }
+
+    /**
+     * Print difference between manifest and current tree
+     * @param previous digests from manifest
+     * @param current digests of current tree
+     */
+    private void diff(Map<String, String> previous, TreeDigests current) {
+        int changed = 0, added = 0, removed = 0;
+        for (Map.Entry<String, String> entry : current.digests().entrySet()) {
+            String oldDigest = previous.get(entry.getKey());
+            if (oldDigest == null) {
+                System.out.printf("[ADDED] %s\n", entry.getKey());
+                added++;
+            } else if (!oldDigest.equalsIgnoreCase(entry.getValue())) {
+                System.out.printf("[CHANGED] %s\n", entry.getKey());
+                changed++;
+            }
+        }
+        for (String path : current.unreadable()) {
+            System.out.printf("[UNREADABLE] %s\n", path);
+        }
+        for (String path : new TreeMap<>(previous).keySet()) {
+            if (!current.digests().containsKey(path) && !current.unreadable().contains(path)) {
+                System.out.printf("[REMOVED] %s\n", path);
+                removed++;
+            }
+        }
+        int unreadable = current.unreadable().size();
+        if (changed + added + removed + unreadable == 0) {
+            System.out.println("Manifest Result: All files match");
+        } else {
+            System.out.printf("Manifest Result: %d changed, %d added, %d removed, %d unreadable\n",
+                    changed, added, removed, unreadable);
+        }
+    }
+
+    private String relative(Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private Map<String, String> readManifest(Path manifestPath) throws IOException {
+        Map<String, String> digests = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int split = line.indexOf("  ");
+                if (split > 0) digests.put(line.substring(split + 2), line.substring(0, split));
+            }
+        }
+        return digests;
+    }
+
+    private void writeManifest(Path manifestPath, SortedMap<String, String> digests) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(manifestPath, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : digests.entrySet()) {
+                writer.write(entry.getValue());
+                writer.write("  ");
+                writer.write(entry.getKey());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Close digest cache
+     */
+    @Override
+    public void close() throws SQLException {
+        cache.close();
+    }
+}
@@ -0,0 +1,227 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watch a directory and hand newly arrived or changed files of one extension to a handler.
+ * A file is handed over once it has been quiet for the settle time, so files still being written
+ * by a scanner are not picked up half done. Handled files are kept in a state file in the order
+ * they were first handled, a restarted watcher compares the directory listing with it and only
+ * handles what is new or changed since, file content is never read for that.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class DirectoryWatcher {
+    private final Path directory;
+    private final String extension;
+    private final Path statePath;
+    private final long settleMillis;
+
+    // file name to stamp when it was handled, in first handled order
+    private final Map<String, Stamp> state = new LinkedHashMap<>();
+
+    // file name to last time an event was seen for it
+    private final Map<String, Long> pending = new HashMap<>();
+
+    /**
+     * Size and modified time of a handled file
+     */
+    private record Stamp(long size, long modified) {}
+
+    /**
+     * Work on files that are ready
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * @param files ready files, sorted by name
+         * @return files handled successfully, the others are tried again when they change
+         * @throws Exception failure of the whole batch, nothing is recorded and the watcher stops
+         */
+        List<Path> handle(List<Path> files) throws Exception;
+    }
+
+    /**
+     * Constructor, loads the state file when it exists
+     * @param directory watched directory
+     * @param extension file extension like ".jpg"
+     * @param statePath state file
+     * @param settleMillis quiet time before a file is ready
+     * @throws IOException throw if state file can't be read
+     */
+    public DirectoryWatcher(String directory, String extension, Path statePath, long settleMillis) throws IOException {
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        if (!Files.isDirectory(this.directory)) throw new IllegalArgumentException("Not a directory: " + directory);
+        this.extension = extension.toLowerCase();
+        this.statePath = statePath;
+        this.settleMillis = settleMillis;
+        loadState();
+    }
+
+    /**
+     * @return true if no file was handled yet
+     */
+    public boolean isFresh() {
+        return state.isEmpty();
+    }
+
+    /**
+     * Position of a file in handled order
+     * @param name file name
+     * @return position from 0, -1 if the file was never handled
+     */
+    public int indexOf(String name) {
+        int index = 0;
+        for (String handled : state.keySet()) {
+            if (handled.equals(name)) return index;
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * Handle what changed while nobody was watching, then watch until the thread is interrupted
+     * @param handler file handler
+     * @throws Exception throw if watching fails or handler fails a whole batch
+     */
+    public void run(Handler handler) throws Exception {
+        try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+            // register before listing, so a file arriving in between is not missed
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            dispatch(handler, changedFiles(listDirectory()));
+            System.out.printf("[+] Watching: %s for *%s, press Ctrl+C to stop\n", directory, extension);
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(Math.max(50, settleMillis / 2), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    collect(key);
+                    if (!key.reset()) throw new IOException("Directory is gone: " + directory);
+                }
+                dispatch(handler, settledFiles());
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Move events of one key into pending, overflow means events were lost so the whole listing is checked
+     */
+    private void collect(WatchKey key) throws IOException {
+        long now = System.currentTimeMillis();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                for (Path file : listDirectory()) pending.put(file.getFileName().toString(), now);
+            } else if (event.context() instanceof Path name && matches(name)) {
+                pending.put(name.toString(), now);
+            }
+        }
+    }
+
+    /**
+     * Take pending files that were quiet for the settle time and changed since handled
+     */
+    private List<Path> settledFiles() throws IOException {
+        long now = System.currentTimeMillis();
+        List<Path> settled = new ArrayList<>();
+        pending.entrySet().removeIf(entry -> {
+            if (now - entry.getValue() < settleMillis) return false;
+            settled.add(directory.resolve(entry.getKey()));
+            return true;
+        });
+        return changedFiles(settled);
+    }
+
+    /**
+     * @return files that are not in state or whose size or modified time differ from it, sorted by name
+     */
+    private List<Path> changedFiles(List<Path> files) throws IOException {
+        List<Path> changed = new ArrayList<>();
+        for (Path file : files) {
+            Stamp stamp = stampOf(file);
+            if (stamp != null && !stamp.equals(state.get(file.getFileName().toString()))) changed.add(file);
+        }
+        changed.sort(Comparator.comparing(file -> file.getFileName().toString(), FileDiscovery.NATURAL_ORDER));
+        return changed;
+    }
+
+    private void dispatch(Handler handler, List<Path> files) throws Exception {
+        if (files.isEmpty()) return;
+        // stamp before handling, a file changing while it is handled then shows up as changed again
+        Map<Path, Stamp> stamps = new HashMap<>();
+        for (Path file : files) stamps.put(file, stampOf(file));
+        for (Path file : handler.handle(files)) {
+            Stamp stamp = stamps.get(file);
+            if (stamp != null) state.put(file.getFileName().toString(), stamp);
+        }
+        saveState();
+    }
+
+    private List<Path> listDirectory() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (matches(file.getFileName())) files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private boolean matches(Path name) {
+        return name.toString().toLowerCase().endsWith(extension);
+    }
+
+    /**
+     * @return stamp of regular file, null if file is gone or not a regular file
+     */
+    private static Stamp stampOf(Path file) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) return null;
+            return new Stamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * State file has one line per handled file: size, modified time and name separated by tab
+     */
+    private void loadState() throws IOException {
+        if (!Files.exists(statePath)) return;
+        for (String line : Files.readAllLines(statePath, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t", 3);
+            if (fields.length == 3) state.put(fields[2], new Stamp(Long.parseLong(fields[0]), Long.parseLong(fields[1])));
+        }
+    }
+
+    /**
+     * Write state to temp file and move it over the old one, a crash never leaves a half written state
+     */
+    private void saveState() throws IOException {
+        Path tempFile = statePath.resolveSibling(statePath.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Stamp> entry : state.entrySet()) {
+                writer.write(entry.getValue().size() + "\t" + entry.getValue().modified() + "\t" + entry.getKey());
+                writer.newLine();
+            }
+        }
+        Files.move(tempFile, statePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Find duplicate files in stages so only a small part of the bytes has to be read:
+ * group by size, then hash the first and last 64 KB, then full hash only for files still colliding
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class DuplicateFileFinder {
+    // bytes taken from each end of file in partial hash stage
+    private static final int EDGE_SIZE = 64 * 1024;
+
+    private final int threads;
+
+    // bytes read from disk by all stages
+    private final LongAdder bytesRead = new LongAdder();
+
+    /**
+     * Hash key of one file in a stage
+     */
+    private record Keyed(Path path, String key) {}
+
+    /**
+     * Constructor
+     * @param threads number of hashing threads
+     */
+    public DuplicateFileFinder(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Find and print duplicate files below the given directories
+     * @param directories directories to search
+     */
+    public void find(List<String> directories) throws Exception {
+        if (directories.isEmpty()) throw new IllegalArgumentException("Missing directory");
+        long start = System.nanoTime();
+
+        Map<Long, List<Path>> bySize = new HashMap<>();
+        long totalBytes = scan(directories, bySize);
+        int totalFiles = bySize.values().stream().mapToInt(List::size).sum();
+        System.out.printf("[+] Scanned %d files, %d bytes\n", totalFiles, totalBytes);
+
+        List<List<Path>> duplicates = new ArrayList<>();
+        try (ForkJoinPool pool = new ForkJoinPool(threads)) {
+            for (Map.Entry<Long, List<Path>> entry : bySize.entrySet()) {
+                long size = entry.getKey();
+                List<Path> sameSize = entry.getValue();
+                if (size == 0 || sameSize.size() < 2) continue;
+
+                for (List<Path> partialGroup : group(pool, sameSize, true)) {
+                    // partial hash already covered the whole file
+                    if (size <= 2L * EDGE_SIZE) {
+                        duplicates.add(partialGroup);
+                    } else {
+                        duplicates.addAll(group(pool, partialGroup, false));
+                    }
+                }
+            }
+        }
+
+        long wasted = 0;
+        for (List<Path> group : duplicates) {
+            long size = Files.size(group.get(0));
+            wasted += size * (group.size() - 1);
+            System.out.printf("[DUPLICATE] %d files, %d bytes each\n", group.size(), size);
+            for (Path path : group) {
+                System.out.printf("\t%s\n", path);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Duplicate Result: %d groups, %d wasted bytes, read %d of %d bytes in %.1f s\n",
+                duplicates.size(), wasted, bytesRead.sum(), totalBytes, seconds);
+    }
+
+    /**
+     * Split files into groups with equal hash, groups with only one file are dropped
+     * @param pool hashing pool
+     * @param files files with the same size
+     * @param partial hash only first and last 64 KB when true, otherwise whole file
+     * @return groups of files with equal hash
+     */
+    private Collection<List<Path>> group(ForkJoinPool pool, List<Path> files, boolean partial) throws Exception {
+        Map<String, List<Path>> byKey = pool.submit(() -> files.parallelStream()
+                .map(path -> new Keyed(path, hashOf(path, partial)))
+                .filter(keyed -> keyed.key() != null)
+                .collect(Collectors.groupingBy(Keyed::key, Collectors.mapping(Keyed::path, Collectors.toList()))))
+                .get();
+        byKey.values().removeIf(group -> group.size() < 2);
+        return byKey.values();
+    }
+
+    /**
+     * @return hex hash of the file, null if the file can't be read
+     */
+    private String hashOf(Path path, boolean partial) {
+        try {
+            long size = Files.size(path);
+            byte[] hash = partial ? FileHasher.hashEdges(path, EDGE_SIZE) : FileHasher.hash(path);
+            bytesRead.add(partial ? Math.min(size, 2L * EDGE_SIZE) : size);
+            return FileHasher.toHex(hash);
+        } catch (IOException e) {
+            System.err.printf("[!] Can't read: %s (%s)\n", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Walk every directory and bucket regular files by size,
+     * the same file reached twice (overlapping directories or hard links) is only counted once
+     * @return total bytes of all files
+     */
+    private long scan(List<String> directories, Map<Long, List<Path>> bySize) throws IOException {
+        Set<Object> seen = new HashSet<>();
+        long totalBytes = 0;
+        for (FileDiscovery.Entry entry : new FileDiscovery(directories, null, true).list()) {
+            BasicFileAttributes attrs = entry.attributes();
+            Object key = (attrs.fileKey() != null) ? attrs.fileKey() : entry.path();
+            if (seen.add(key)) {
+                bySize.computeIfAbsent(attrs.size(), size -> new ArrayList<>()).add(entry.path());
+                totalBytes += attrs.size();
+            }
+        }
+        return totalBytes;
+    }
+}
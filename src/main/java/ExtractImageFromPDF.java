@@ -1,24 +1,171 @@
 import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.Operator;
 import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDInlineImage;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Implement extract image from pdf file class
- * extend to override PDFStreamEngine to change operation
+ * extend to override PDFStreamEngine to change operation.
+ * Walks page content, form XObjects and inline images. DCT and JPX images are written out
+ * as their raw stream without decoding, other images are decoded and written as lossless png.
  * @author li1345825138
  * @date 2024/2/1
  */
 public class ExtractImageFromPDF extends PDFStreamEngine {
+    private static final List<String> JPG_STOP_FILTERS = List.of(COSName.DCT_DECODE.getName());
+    private static final List<String> JPX_STOP_FILTERS = List.of(COSName.JPX_DECODE.getName());
+
     private int imageIndex = 1;
 
+    // image index inside current page
+    private int pageImageIndex;
+    private int pageNumber;
+
+    private final File outputDirectory;
+
+    // object keys of image XObjects already written, may be shared between extractors of the same file
+    private final Set<Object> extracted;
+
+    // memory for images that have to be decoded
+    private final DecodeBudget budget;
+
+    // forms being drawn right now, a form drawing itself again is skipped
+    private final Set<COSStream> formPath = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Constructor
+     * @param outputDirectory where to write images
+     * @param extracted keys of images already extracted, new keys are added while extracting
+     * @param budget memory for decoded images
+     */
+    public ExtractImageFromPDF(File outputDirectory, Set<Object> extracted, DecodeBudget budget) {
+        this.outputDirectory = outputDirectory;
+        this.extracted = extracted;
+        this.budget = budget;
+    }
+
+    /**
+     * Extract every image drawn on a page
+     * @param page pdf page
+     * @param pageNumber page number starting from 1, used in output file name
+     * @throws IOException throw if page can't be parsed or image can't be written
+     */
+    public void extract(PDPage page, int pageNumber) throws IOException {
+        this.pageNumber = pageNumber;
+        this.pageImageIndex = 1;
+        processPage(page);
+    }
+
     @Override
-    public void processOperator(String operation, List<COSBase> arguments) throws IOException {
-        
+    protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+        switch (operator.getName()) {
+            case "Do" -> {
+                if (operands.isEmpty() || !(operands.get(0) instanceof COSName name)) return;
+                PDResources resources = getResources();
+                if (resources == null) return;
+                PDXObject xObject = resources.getXObject(name);
+                if (xObject instanceof PDImageXObject image) {
+                    if (extracted.add(keyOf(resources, name, image))) writeImage(image);
+                } else if (xObject instanceof PDFormXObject form) {
+                    if (!formPath.add(form.getCOSObject())) return;
+                    try {
+                        showForm(form);
+                    } finally {
+                        formPath.remove(form.getCOSObject());
+                    }
+                }
+            }
+            case "BI" -> {
+                COSDictionary parameters = operator.getImageParameters();
+                byte[] data = operator.getImageData();
+                if (parameters != null && data != null && data.length > 0) {
+                    writeImage(new PDInlineImage(parameters, data, getResources()));
+                }
+            }
+            default -> {
+                // other operators do not draw images
+            }
+        }
+    }
+
+    /**
+     * Image XObjects are keyed by their object number, so the same image shared by many
+     * pages or forms is only written once
+     */
+    private static Object keyOf(PDResources resources, COSName name, PDImageXObject image) {
+        COSDictionary xObjects = resources.getCOSObject().getCOSDictionary(COSName.XOBJECT);
+        COSBase item = (xObjects != null) ? xObjects.getItem(name) : null;
+        if (item instanceof COSObject object && object.getKey() != null) return object.getKey();
+        return image.getCOSObject();
+    }
+
+    /**
+     * Write image as raw jpg / jp2 stream when possible, otherwise decode and write png
+     */
+    private void writeImage(PDImage image) throws IOException {
+        String suffix = image.getSuffix();
+        if ("jpg".equals(suffix)) {
+            writeRaw(image, JPG_STOP_FILTERS, "jpg");
+        } else if ("jpx".equals(suffix)) {
+            writeRaw(image, JPX_STOP_FILTERS, "jp2");
+        } else {
+            // PDFBox decodes into 4 bytes per pixel
+            long decodedSize = (long) image.getWidth() * image.getHeight() * 4;
+            int subsampling = budget.subsamplingFor(decodedSize);
+            if (subsampling > 1) {
+                System.err.printf("[!] Image on page %d needs %.1f MB to decode, writing every %d. pixel to fit decode memory\n",
+                        pageNumber, decodedSize / 1048576.0, subsampling);
+            }
+            DecodeBudget.Permit permit = budget.acquire(decodedSize / ((long) subsampling * subsampling));
+            try {
+                BufferedImage bufferedImage = (subsampling > 1) ? image.getImage(null, subsampling) : image.getImage();
+                if (bufferedImage == null) return;
+                File outputFile = nextOutputFile("png");
+                ImageIO.write(bufferedImage, "png", outputFile);
+                System.out.printf("Writing Image: %s\n", outputFile.getAbsolutePath());
+            } finally {
+                permit.close();
+            }
+        }
+    }
+
+    /**
+     * Copy encoded stream up to the image filter as it is, no decode and no quality loss
+     */
+    private void writeRaw(PDImage image, List<String> stopFilters, String extension) throws IOException {
+        File outputFile = nextOutputFile(extension);
+        try (InputStream input = image.createInputStream(stopFilters)) {
+            Files.copy(input, outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        System.out.printf("Writing Image: %s\n", outputFile.getAbsolutePath());
     }
 
-    public ExtractImageFromPDF() throws IOException {}
+    private File nextOutputFile(String extension) {
+        imageIndex++;
+        return new File(outputDirectory, String.format("image-%04d-%03d.%s", pageNumber, pageImageIndex++, extension));
+    }
 
     public int getImageIndex() {
         return imageIndex;
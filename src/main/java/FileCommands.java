@@ -0,0 +1,87 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * File hashing commands: -hash, -hashdir and -dupes
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+final class FileCommands {
+    private FileCommands() {}
+
+    /**
+     * Compare two file hash value
+     */
+    static void compareHash(CommandOptions options) throws Exception {
+        compareFileHash(options.get(1), options.get(2), options.has("--bytes"));
+    }
+
+    /**
+     * Hash directory tree into manifest, or diff it against existing manifest
+     */
+    static void hashDirectory(CommandOptions options) throws Exception {
+        int threads = options.getInt("--threads", Runtime.getRuntime().availableProcessors());
+        String cacheLocation = options.getString("--cache", "./hashcache.sql");
+        try (DirectoryHasher directoryHasher = new DirectoryHasher(options.get(1), cacheLocation, threads)) {
+            directoryHasher.run(options.get(2), options.has("--update"));
+        }
+    }
+
+    /**
+     * Find duplicate files across directories
+     */
+    static void findDuplicates(CommandOptions options) throws Exception {
+        int threads = options.getInt("--threads", Runtime.getRuntime().availableProcessors());
+        new DuplicateFileFinder(threads).find(options.getFrom(1));
+    }
+
+    /**
+     * Compare two file hash and show there result.
+     * Files are streamed in chunks and hashed at the same time on two threads,
+     * hashing is skipped when the file sizes already differ.
+     * @param file1 original file path
+     * @param file2 compare file path
+     * @param byteCompare compare bytes directly and stop at the first differing chunk instead of hashing
+     */
+    private static void compareFileHash(String file1, String file2, boolean byteCompare) throws Exception {
+        Path path1 = Paths.get(file1);
+        Path path2 = Paths.get(file2);
+        long size1 = Files.size(path1);
+        long size2 = Files.size(path2);
+        if (size1 != size2) {
+            System.out.printf("FILE 1: %s  Size: %d\n", file1, size1);
+            System.out.printf("FILE 2: %s  Size: %d\n", file2, size2);
+            System.out.println("Hash Result: File has been modify");
+            return;
+        }
+
+        if (byteCompare) {
+            long mismatch = FileHasher.firstMismatch(path1, path2);
+            if (mismatch < 0) {
+                System.out.println("Bytes Result: Files are identical");
+            } else {
+                System.out.printf("Bytes Result: File has been modify, first difference at byte %d\n", mismatch);
+            }
+            return;
+        }
+
+        String file1Hash;
+        String file2Hash;
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            Future<byte[]> hash1 = executor.submit(() -> FileHasher.hash(path1));
+            Future<byte[]> hash2 = executor.submit(() -> FileHasher.hash(path2));
+            file1Hash = FileHasher.toHex(hash1.get());
+            file2Hash = FileHasher.toHex(hash2.get());
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception cause) ? cause : e;
+        }
+        System.out.printf("FILE 1: %s  Hash: %s\n", file1, file1Hash);
+        System.out.printf("FILE 2: %s  Hash: %s\n", file2, file2Hash);
+        System.out.printf("Hash Result: %s\n", (file1Hash.equals(file2Hash)) ? "Hash Correct" : "File has been modify");
+    }
+}
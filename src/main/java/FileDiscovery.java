@@ -0,0 +1,302 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Find regular files below one or more directories, shared by every command that works on a directory.
+ * Entries are streamed from the file system instead of loading a whole directory into one array.
+ * {@link #list()} collects them in natural order for commands where order matters, {@link #feed(int)}
+ * scans on a background thread into a bounded queue so work starts before the scan is done and a slow
+ * consumer holds the scan back.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class FileDiscovery {
+    // entries a feed holds when the caller has no better idea
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Compare file names like a person would: case is ignored and digit runs compare by value,
+     * so "scan2" sorts before "scan10" and "scan001" next to "scan1"
+     */
+    public static final Comparator<String> NATURAL_ORDER = FileDiscovery::compareNatural;
+
+    private final List<Path> roots;
+    private final String extension;
+    private final boolean recursive;
+
+    /**
+     * One regular file with the attributes read while scanning
+     */
+    public record Entry(Path path, BasicFileAttributes attributes) {
+        public File toFile() {
+            return path.toFile();
+        }
+    }
+
+    /**
+     * Receive entries while scanning
+     */
+    @FunctionalInterface
+    private interface Sink {
+        void accept(Entry entry) throws InterruptedException;
+    }
+
+    /**
+     * Constructor
+     * @param directory directory to scan
+     * @param extension file extension like ".jpg", null for every file
+     * @param recursive also scan subdirectories
+     */
+    public FileDiscovery(String directory, String extension, boolean recursive) {
+        this(List.of(directory), extension, recursive);
+    }
+
+    /**
+     * Constructor
+     * @param directories directories to scan
+     * @param extension file extension like ".jpg", null for every file
+     * @param recursive also scan subdirectories
+     */
+    public FileDiscovery(List<String> directories, String extension, boolean recursive) {
+        this.roots = new ArrayList<>();
+        for (String directory : directories) {
+            Path root = Path.of(directory).toAbsolutePath().normalize();
+            if (!Files.isDirectory(root)) throw new IllegalArgumentException("Not a directory: " + directory);
+            this.roots.add(root);
+        }
+        this.extension = (extension != null) ? extension.toLowerCase() : null;
+        this.recursive = recursive;
+    }
+
+    /**
+     * Scan on the calling thread
+     * @return all files, sorted in natural order of their path
+     * @throws IOException throw if a directory can't be listed
+     */
+    public List<Entry> list() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try {
+            scan(entries::add);
+        } catch (InterruptedException e) {
+            // list sink never blocks
+            Thread.currentThread().interrupt();
+        }
+        entries.sort(Comparator.comparing(entry -> entry.path().toString(), NATURAL_ORDER));
+        return entries;
+    }
+
+    /**
+     * Scan on a background thread, in file system order
+     * @param capacity max entries waiting for the consumer, the scan blocks while the queue is full
+     * @return feed of entries, close it to stop the scan early
+     */
+    public Feed feed(int capacity) {
+        Feed feed = new Feed(capacity);
+        feed.producer = Thread.ofVirtual().name("file-discovery").start(() -> feed.produce(this));
+        return feed;
+    }
+
+    /**
+     * Walk every root and hand matching regular files to sink as one timed scan stage
+     */
+    private void scan(Sink sink) throws IOException, InterruptedException {
+        try (Metrics.Stage stage = Metrics.stage(Metrics.SCAN)) {
+            long[] count = {0, 0};
+            Sink counting = entry -> {
+                sink.accept(entry);
+                count[0]++;
+                count[1] += entry.attributes().size();
+            };
+            for (Path root : roots) {
+                if (recursive) {
+                    walkTree(root, counting);
+                } else {
+                    listDirectory(root, counting);
+                }
+            }
+            stage.items(count[0]).bytes(count[1]);
+        }
+    }
+
+    /**
+     * Stream one directory, attributes are only read for names that match
+     */
+    private void listDirectory(Path directory, Sink sink) throws IOException, InterruptedException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                if (!matches(file)) continue;
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    System.err.printf("[!] Can't read: %s (%s)\n", file, e.getMessage());
+                    continue;
+                }
+                if (attributes.isRegularFile()) sink.accept(new Entry(file, attributes));
+            }
+        }
+    }
+
+    private void walkTree(Path root, Sink sink) throws IOException, InterruptedException {
+        boolean[] interrupted = {false};
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!attrs.isRegularFile() || !matches(file)) return FileVisitResult.CONTINUE;
+                try {
+                    sink.accept(new Entry(file, attrs));
+                    return FileVisitResult.CONTINUE;
+                } catch (InterruptedException e) {
+                    interrupted[0] = true;
+                    return FileVisitResult.TERMINATE;
+                }
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                System.err.printf("[!] Can't read: %s (%s)\n", file, exc.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        if (interrupted[0]) throw new InterruptedException();
+    }
+
+    private boolean matches(Path file) {
+        return extension == null || file.getFileName().toString().toLowerCase().endsWith(extension);
+    }
+
+    private static int compareNatural(String a, String b) {
+        int i = 0, j = 0;
+        while (i < a.length() && j < b.length()) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(j);
+            if (isDigit(ca) && isDigit(cb)) {
+                // skip leading zeros, then the longer number is the bigger one
+                while (i < a.length() - 1 && a.charAt(i) == '0' && isDigit(a.charAt(i + 1))) i++;
+                while (j < b.length() - 1 && b.charAt(j) == '0' && isDigit(b.charAt(j + 1))) j++;
+                int endA = i, endB = j;
+                while (endA < a.length() && isDigit(a.charAt(endA))) endA++;
+                while (endB < b.length() && isDigit(b.charAt(endB))) endB++;
+                if (endA - i != endB - j) return (endA - i) - (endB - j);
+                for (; i < endA; i++, j++) {
+                    if (a.charAt(i) != b.charAt(j)) return a.charAt(i) - b.charAt(j);
+                }
+            } else {
+                int diff = Character.toLowerCase(ca) - Character.toLowerCase(cb);
+                if (diff != 0) return diff;
+                i++;
+                j++;
+            }
+        }
+        int diff = (a.length() - i) - (b.length() - j);
+        // names equal apart from case or leading zeros still need a fixed order
+        return (diff != 0) ? diff : a.compareTo(b);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Entries of a background scan, iterating blocks until the next entry is found or the scan is done
+     */
+    public static final class Feed implements Iterator<Entry>, AutoCloseable {
+        private static final Entry END = new Entry(null, null);
+
+        private final BlockingQueue<Entry> queue;
+        private Thread producer;
+        private volatile IOException error;
+        private Entry next;
+        private boolean ended;
+
+        private Feed(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        }
+
+        private void produce(FileDiscovery discovery) {
+            try {
+                discovery.scan(queue::put);
+            } catch (IOException e) {
+                error = e;
+            } catch (InterruptedException e) {
+                // feed was closed, nobody waits for the end marker
+                return;
+            }
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                // closed while the queue was full
+            }
+        }
+
+        /**
+         * @throws UncheckedIOException if the scan failed
+         */
+        @Override
+        public boolean hasNext() {
+            if (next != null) return true;
+            if (ended) return false;
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for files", e);
+            }
+            if (next == END) {
+                next = null;
+                ended = true;
+                if (error != null) throw new UncheckedIOException(error);
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public Entry next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            Entry entry = next;
+            next = null;
+            return entry;
+        }
+
+        /**
+         * @return view of this feed as files
+         */
+        public Iterator<File> files() {
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return Feed.this.hasNext();
+                }
+
+                @Override
+                public File next() {
+                    return Feed.this.next().toFile();
+                }
+            };
+        }
+
+        /**
+         * Stop the scan if it is still running
+         */
+        @Override
+        public void close() {
+            producer.interrupt();
+            queue.clear();
+        }
+    }
+}
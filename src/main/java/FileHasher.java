@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Streaming file hash helpers, read file in fixed size chunks so memory stays flat
+ * no matter how big the file is
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public final class FileHasher {
+    public static final String ALGORITHM = "SHA-256";
+
+    // read chunk size
+    public static final int CHUNK_SIZE = 1 << 20;
+
+    // reuse one chunk buffer per thread
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(CHUNK_SIZE));
+
+    private FileHasher() {}
+
+    /**
+     * Create new SHA-256 digest
+     * @return message digest
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hash whole file content
+     * @param path file path
+     * @return hash bytes
+     * @throws IOException throw if file can't be read
+     */
+    public static byte[] hash(Path path) throws IOException {
+        MessageDigest digest = newDigest();
+        try (Metrics.Stage stage = Metrics.stage(Metrics.HASH);
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            stage.items(1).bytes(update(digest, channel, 0, Long.MAX_VALUE));
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Hash only the first and last edgeSize bytes of a file,
+     * when file is not bigger than two edges the whole content is hashed
+     * @param path file path
+     * @param edgeSize number of bytes taken from each end
+     * @return hash bytes
+     * @throws IOException throw if file can't be read
+     */
+    public static byte[] hashEdges(Path path, int edgeSize) throws IOException {
+        MessageDigest digest = newDigest();
+        try (Metrics.Stage stage = Metrics.stage(Metrics.HASH);
+             FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            stage.items(1);
+            if (size <= 2L * edgeSize) {
+                stage.bytes(update(digest, channel, 0, size));
+            } else {
+                stage.bytes(update(digest, channel, 0, edgeSize));
+                stage.bytes(update(digest, channel, size - edgeSize, edgeSize));
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Feed part of file into digest
+     * @param digest digest to update
+     * @param channel opened file channel
+     * @param position start position
+     * @param length max number of bytes to read
+     * @return number of bytes actually read
+     * @throws IOException throw if file can't be read
+     */
+    public static long update(MessageDigest digest, FileChannel channel, long position, long length) throws IOException {
+        ByteBuffer buffer = BUFFER.get();
+        long total = 0;
+        while (total < length) {
+            buffer.clear();
+            if (length - total < buffer.capacity()) buffer.limit((int) (length - total));
+            int read = channel.read(buffer, position + total);
+            if (read < 0) break;
+            digest.update(buffer.array(), 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * Compare two files chunk by chunk and stop at the first difference
+     * @param path1 first file
+     * @param path2 second file
+     * @return offset of the first differing byte, -1 if both files are identical
+     * @throws IOException throw if any file can't be read
+     */
+    public static long firstMismatch(Path path1, Path path2) throws IOException {
+        ByteBuffer buffer1 = ByteBuffer.allocate(CHUNK_SIZE);
+        ByteBuffer buffer2 = ByteBuffer.allocate(CHUNK_SIZE);
+        try (Metrics.Stage stage = Metrics.stage("compare");
+             FileChannel channel1 = FileChannel.open(path1, StandardOpenOption.READ);
+             FileChannel channel2 = FileChannel.open(path2, StandardOpenOption.READ)) {
+            long size1 = channel1.size();
+            long size2 = channel2.size();
+            long position = 0;
+            stage.items(2);
+            while (position < Math.min(size1, size2)) {
+                readFully(channel1, buffer1, position);
+                readFully(channel2, buffer2, position);
+                stage.bytes(buffer1.limit() + buffer2.limit());
+                int mismatch = buffer1.mismatch(buffer2);
+                if (mismatch >= 0) return position + mismatch;
+                if (buffer1.limit() == 0) return position;
+                position += buffer1.limit();
+            }
+            return (size1 == size2) ? -1 : position;
+        }
+    }
+
+    /**
+     * Fill buffer from channel at given position until buffer is full or end of file
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) break;
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Turn Hash bytes array into hex string
+     * @param hashBytes hash bytes array
+     * @return hex string
+     */
+    public static String toHex(byte[] hashBytes) {
+        StringBuilder stringBuilder = new StringBuilder(hashBytes.length * 2);
+        for (byte b : hashBytes) {
+            int bt = b & 0xff;
+            if (bt < 16) stringBuilder.append('0');
+            stringBuilder.append(Integer.toHexString(bt));
+        }
+        return stringBuilder.toString().toUpperCase();
+    }
+}
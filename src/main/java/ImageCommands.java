@@ -0,0 +1,59 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Image commands: -w and -mi
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+final class ImageCommands {
+    private ImageCommands() {}
+
+    /**
+     * Convert webp images of a directory into jpg
+     */
+    static void webpToJpg(CommandOptions options) throws Exception {
+        int threads = options.getInt("--threads", Runtime.getRuntime().availableProcessors());
+        float quality = (float) options.getDouble("--quality", 0.75);
+        if (options.has("--watch")) {
+            Path statePath = Path.of(options.getString("--state", Path.of(options.get(1), ".mylittletools-watch").toString()));
+            DirectoryWatcher watcher = new DirectoryWatcher(options.get(1), ".webp", statePath, options.getLong("--settle", 2000));
+            // new converter per batch so every batch prints its own summary
+            watcher.run(files -> new WebpToJpgConverter(threads, quality, options.has("--force"), DecodeBudget.of(options))
+                    .convert(files.stream().map(Path::toFile).toList()).stream().map(File::toPath).toList());
+            return;
+        }
+        // order does not matter, conversion starts while the directory is still being scanned
+        try (FileDiscovery.Feed feed = options.getDiscovery(1, ".webp").feed(FileDiscovery.DEFAULT_CAPACITY)) {
+            new WebpToJpgConverter(threads, quality, options.has("--force"), DecodeBudget.of(options)).convert(feed.files());
+        }
+    }
+
+    /**
+     * Merge jpg images of a directory vertically into one image
+     */
+    static void mergeImages(CommandOptions options) throws IOException {
+        List<File> imagesList = options.getFiles(1, ".jpg");
+        mergeMultiImages(imagesList, options.get(2), DecodeBudget.of(options));
+    }
+
+    /**
+     * Merge multiple Images vertically into one single JPG or PNG format image
+     * @param imagesList the list of images
+     * @param finalName final image save name, png output when it ends with .png
+     * @param budget memory for decoded images
+     */
+    private static void mergeMultiImages(List<File> imagesList, String finalName, DecodeBudget budget) throws IOException {
+        if (imagesList == null || imagesList.isEmpty()) return;
+        VerticalImageStitcher stitcher = new VerticalImageStitcher(imagesList, budget);
+        System.out.printf("[+] Writing output: %s (%dx%d)...", finalName, stitcher.getWidth(), stitcher.getHeight());
+        // sources are decoded lazily while the encoder pulls rows, so encode time includes the decode stage
+        try (Metrics.Stage stage = Metrics.stage(Metrics.ENCODE)) {
+            stitcher.write(new File(finalName));
+            stage.items(1).bytes(new File(finalName).length());
+        }
+        System.out.println("Done!");
+    }
+}
@@ -0,0 +1,107 @@
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Read image size from jpeg SOF marker without decoding any pixel,
+ * and embed the original DCT stream into pdf as it is
+ * @param width image width
+ * @param height image height
+ * @param bitsPerComponent sample precision
+ * @param components number of color components
+ * @param frameType SOF marker type, 0xC0 - 0xCF
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public record JpegHeader(int width, int height, int bitsPerComponent, int components, int frameType) {
+
+    /**
+     * Read jpeg header from file
+     * @param path jpeg file
+     * @return header, null if file is not a jpeg or has no usable SOF marker
+     * @throws IOException throw if file can't be read
+     */
+    public static JpegHeader read(Path path) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(path), 8192)) {
+            return read(input);
+        }
+    }
+
+    /**
+     * Read jpeg header from stream, stop right after the SOF marker
+     * @param input jpeg data
+     * @return header, null if data is not a jpeg or has no usable SOF marker
+     * @throws IOException throw if stream can't be read
+     */
+    public static JpegHeader read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        try {
+            if (data.readUnsignedShort() != 0xFFD8) return null;
+            while (true) {
+                int marker = data.readUnsignedByte();
+                if (marker != 0xFF) return null;
+                int type = data.readUnsignedByte();
+                // fill bytes before marker
+                while (type == 0xFF) type = data.readUnsignedByte();
+                // standalone markers without length
+                if (type == 0x01 || (type >= 0xD0 && type <= 0xD7)) continue;
+                // end of image or start of scan before any frame header
+                if (type == 0xD9 || type == 0xDA) return null;
+
+                int length = data.readUnsignedShort();
+                if (isStartOfFrame(type)) {
+                    int precision = data.readUnsignedByte();
+                    int height = data.readUnsignedShort();
+                    int width = data.readUnsignedShort();
+                    int components = data.readUnsignedByte();
+                    // height 0 means it is defined later by DNL marker
+                    if (width == 0 || height == 0) return null;
+                    return new JpegHeader(width, height, precision, components, type);
+                }
+                data.skipNBytes(length - 2);
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * SOF0 - SOF15 except DHT (C4), JPG (C8) and DAC (CC)
+     */
+    private static boolean isStartOfFrame(int type) {
+        return type >= 0xC0 && type <= 0xCF && type != 0xC4 && type != 0xC8 && type != 0xCC;
+    }
+
+    /**
+     * 8-bit gray and RGB jpeg in baseline, extended or progressive Huffman coding can be embedded as it is.
+     * CMYK needs Adobe marker handling, 12-bit, lossless and arithmetic coded jpeg can't be read by most
+     * viewers, those are left to PDFBox
+     * @return true if {@link #createImage} can be used
+     */
+    public boolean canEmbedRaw() {
+        return bitsPerComponent == 8 && frameType >= 0xC0 && frameType <= 0xC2 && (components == 1 || components == 3);
+    }
+
+    /**
+     * Create image XObject that holds the original DCT stream byte-for-byte
+     * @param document target document
+     * @param jpegStream jpeg data from the first byte
+     * @return image XObject with DCTDecode filter
+     * @throws IOException throw if stream can't be read
+     */
+    public PDImageXObject createImage(PDDocument document, InputStream jpegStream) throws IOException {
+        PDColorSpace colorSpace = (components == 1) ? PDDeviceGray.INSTANCE : PDDeviceRGB.INSTANCE;
+        return new PDImageXObject(document, jpegStream, COSName.DCT_DECODE, width, height, bitsPerComponent, colorSpace);
+    }
+}
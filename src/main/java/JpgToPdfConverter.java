@@ -0,0 +1,244 @@
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Convert jpg images into one pdf with a fixed page size, every image is fit onto its page and
+ * images with more pixels than the target dpi needs are downsampled and encoded again.
+ * Worker threads resample in parallel, the calling thread is the only writer and appends pages in
+ * file order, at most queueSize images wait for the writer. Images already at or below the target
+ * dpi are embedded as they are, never decoded.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class JpgToPdfConverter {
+    private static final Map<String, PDRectangle> PAGE_SIZES = Map.of(
+            "A3", PDRectangle.A3, "A4", PDRectangle.A4, "A5", PDRectangle.A5,
+            "LETTER", PDRectangle.LETTER, "LEGAL", PDRectangle.LEGAL);
+
+    private final PDRectangle pageSize;
+    private final float dpi;
+    private final float quality;
+    private final int threads;
+    private final int queueSize;
+    private final long cacheBudget;
+    private final CompressParameters compression;
+    private final DecodeBudget budget;
+
+    /**
+     * Where one image goes on its page, sizes in points
+     */
+    private record Placement(PDRectangle page, float x, float y, float width, float height) {}
+
+    /**
+     * One image ready for the writer, jpeg is null when the source file is embedded as it is
+     */
+    private record Prepared(File source, Placement placement, byte[] jpeg, JpegHeader header, String error) {}
+
+    /**
+     * Constructor
+     * @param pageName page size name: A3, A4, A5, Letter or Legal
+     * @param dpi target resolution of images on the page
+     * @param quality jpeg quality between 0 and 1 for downsampled images
+     * @param threads number of images resampled at the same time
+     * @param queueSize max number of prepared images waiting for the writer, at least threads
+     * @param cacheBudget resource cache bytes
+     * @param compression compression of the written file
+     * @param budget memory for decoded images
+     */
+    public JpgToPdfConverter(String pageName, float dpi, float quality, int threads, int queueSize, long cacheBudget,
+                             CompressParameters compression, DecodeBudget budget) {
+        this.pageSize = PAGE_SIZES.get(pageName.toUpperCase(Locale.ROOT));
+        if (this.pageSize == null) throw new IllegalArgumentException("Unknown page size: " + pageName);
+        if (dpi <= 0) throw new IllegalArgumentException("DPI must be positive");
+        if (quality < 0f || quality > 1f) throw new IllegalArgumentException("Quality must between 0 and 1");
+        this.dpi = dpi;
+        this.quality = quality;
+        this.threads = Math.max(1, threads);
+        this.queueSize = Math.max(this.threads, queueSize);
+        this.cacheBudget = cacheBudget;
+        this.compression = compression;
+        this.budget = budget;
+    }
+
+    /**
+     * Convert every jpg image in list into one page of the pdf, images that can't be read are skipped
+     * @param imageList list of jpg images in page order
+     * @param saveName output pdf
+     * @throws Exception throw if pdf can't be written
+     */
+    public void convert(List<File> imageList, String saveName) throws Exception {
+        if (imageList == null || imageList.isEmpty()) return;
+        if (saveName == null || saveName.isEmpty()) saveName = "output.pdf";
+        long start = System.nanoTime();
+        int pages = 0;
+        int resampled = 0;
+        int failed = 0;
+        Deque<Future<Prepared>> pending = new ArrayDeque<>();
+        try (PDDocument document = new PDDocument();
+             ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            document.setResourceCache(new BoundedResourceCache(cacheBudget));
+            Iterator<File> images = imageList.iterator();
+            while (images.hasNext() || !pending.isEmpty()) {
+                // keep the queue full, then hand the oldest image to the writer
+                while (images.hasNext() && pending.size() < queueSize) {
+                    File imageFile = images.next();
+                    pending.add(executor.submit(() -> prepare(imageFile)));
+                }
+                Prepared prepared = take(pending.poll());
+                if (prepared.error() != null) {
+                    failed++;
+                    System.err.printf("[!] Failed: %s (%s)\n", prepared.source().getPath(), prepared.error());
+                    continue;
+                }
+                System.out.printf("[+] Adding: %s...", prepared.source().getPath());
+                addPage(document, prepared);
+                pages++;
+                if (prepared.jpeg() != null) resampled++;
+                System.out.println("Done!");
+            }
+            if (pages == 0) throw new IOException("No image could be converted");
+            System.out.printf("[+] Writing output: %s...", saveName);
+            PdfCommands.savePDF(document, saveName, compression);
+            System.out.println("Done!");
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[+] Converted %d images (%d downsampled, %d failed) in %.1f s, %.1f images/s\n",
+                pages, resampled, failed, seconds, pages / Math.max(seconds, 1e-9));
+    }
+
+    private static Prepared take(Future<Prepared> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception cause) ? cause : e;
+        }
+    }
+
+    /**
+     * Place image on its page and downsample it when it has more pixels than needed, runs on a worker thread
+     * @throws InterruptedIOException throw if the run is cancelled while waiting for decode memory
+     */
+    private Prepared prepare(File imageFile) throws InterruptedIOException {
+        try {
+            JpegHeader header = JpegHeader.read(imageFile.toPath());
+            if (header == null) throw new IOException("Not a jpg image");
+            Placement placement = place(header.width(), header.height());
+            int targetWidth = Math.max(1, Math.round(placement.width() / 72f * dpi));
+            int targetHeight = Math.max(1, Math.round(placement.height() / 72f * dpi));
+            if (header.width() <= targetWidth && header.height() <= targetHeight) {
+                return new Prepared(imageFile, placement, null, null, null);
+            }
+            DecodeBudget.Decoded decoded;
+            try (Metrics.Stage stage = Metrics.stage(Metrics.DECODE)) {
+                decoded = budget.read(imageFile, header.width() / targetWidth / 2);
+                stage.items(1).bytes(imageFile.length());
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                // ImageIO can't decode some jpg like CMYK, the original is still fine to embed
+                System.err.printf("[!] Can't downsample: %s (%s), embedding it as it is\n", imageFile.getPath(), e.getMessage());
+                return new Prepared(imageFile, placement, null, null, null);
+            }
+            BufferedImage image;
+            try (decoded; Metrics.Stage stage = Metrics.stage("resample")) {
+                image = resize(WebpToJpgConverter.toRGB(decoded.image()), targetWidth, targetHeight);
+                stage.items(1);
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (Metrics.Stage stage = Metrics.stage(Metrics.ENCODE)) {
+                WebpToJpgConverter.writeJPG(image, quality, output);
+                stage.items(1).bytes(output.size());
+            }
+            byte[] jpeg = output.toByteArray();
+            JpegHeader resampledHeader = JpegHeader.read(new ByteArrayInputStream(jpeg));
+            if (resampledHeader == null || !resampledHeader.canEmbedRaw()) throw new IOException("Encoder wrote unsupported jpg");
+            return new Prepared(imageFile, placement, jpeg, resampledHeader, null);
+        } catch (InterruptedIOException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            return new Prepared(imageFile, null, null, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Fit image onto the page, the page is turned to landscape for landscape images
+     */
+    private Placement place(int imageWidth, int imageHeight) {
+        boolean landscape = imageWidth > imageHeight;
+        PDRectangle page = (landscape == pageSize.getWidth() > pageSize.getHeight())
+                ? pageSize : new PDRectangle(pageSize.getHeight(), pageSize.getWidth());
+        float scale = Math.min(page.getWidth() / imageWidth, page.getHeight() / imageHeight);
+        float width = imageWidth * scale;
+        float height = imageHeight * scale;
+        return new Placement(page, (page.getWidth() - width) / 2, (page.getHeight() - height) / 2, width, height);
+    }
+
+    /**
+     * Shrink image in steps of at most half, each bilinear step then averages all source pixels
+     */
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage current = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        while (currentWidth != width || currentHeight != height) {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = next.createGraphics();
+            try {
+                g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g2d.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                g2d.dispose();
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /**
+     * Append one page with the image placed on it, runs on the writer thread only
+     */
+    private static void addPage(PDDocument document, Prepared prepared) throws IOException {
+        PDImageXObject imageXObject;
+        try (Metrics.Stage stage = Metrics.stage("embed")) {
+            if (prepared.jpeg() != null) {
+                imageXObject = prepared.header().createImage(document, new ByteArrayInputStream(prepared.jpeg()));
+                stage.items(1).bytes(prepared.jpeg().length);
+            } else {
+                imageXObject = PdfCommands.createJPGImage(prepared.source(), document);
+                stage.items(1).bytes(prepared.source().length());
+            }
+        }
+        Placement placement = prepared.placement();
+        PDPage page = new PDPage(placement.page());
+        document.addPage(page);
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            contentStream.drawImage(imageXObject, placement.x(), placement.y(), placement.width(), placement.height());
+        }
+    }
+}
@@ -1,8 +1,8 @@
-import java.io.BufferedInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintWriter;
+import java.time.LocalDateTime;
 import java.util.Properties;
 
 /**
@@ -15,18 +15,20 @@ public class Main {
             CommandProcessor commandProcessor = new CommandProcessor(args[0]);
             commandProcessor.process(args);
         } catch (Exception e) {
-            logException(e);
+            logException(e, args);
             System.err.println(e.getLocalizedMessage());
             printHelp();
         }
     }
 
     /**
-     * Hold Exception and print full stack trace to the log file
+     * Hold Exception and append full stack trace to the log file, earlier failures are kept
      * @param e any exception that will be hold
+     * @param args command line of the failed run
      */
-    private static void logException(Exception e) {
-        try (PrintWriter printWriter = new PrintWriter(new FileWriter("error_log.log"))) {
+    static synchronized void logException(Exception e, String[] args) {
+        try (PrintWriter printWriter = new PrintWriter(new FileWriter("error_log.log", true))) {
+            printWriter.printf("[%s] %s%n", LocalDateTime.now(), String.join(" ", args));
             e.printStackTrace(printWriter);
         } catch (IOException ex) {
             throw new RuntimeException(ex);
@@ -35,11 +37,9 @@ public class Main {
 
     public static void printHelp() {
         Properties properties = new Properties();
-        try (
-                InputStream input = CommandProcessor.class.getClassLoader().getResourceAsStream("message.properties");
-                BufferedInputStream bInput = (input != null) ? new BufferedInputStream(input) : null
-        ) {
-            properties.load(bInput);
+        // Properties reads through its own line buffer
+        try (InputStream input = Main.class.getClassLoader().getResourceAsStream("message.properties")) {
+            properties.load(input);
             System.out.println(properties.getProperty("HELP_MESSAGE"));
         } catch (Exception e) {
             System.err.println("Can't Read message properties file from resource stream: " + e.getMessage());
@@ -0,0 +1,278 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-stage timing, item and byte counters shared by every operation, plus peak heap of the run.
+ * Every stage is also emitted as a JFR event, so a run started with -XX:StartFlightRecording
+ * can be profiled without attaching a profiler.
+ * Events are only created once the flight recorder is up, loading the first event class
+ * starts JFR internals and costs hundreds of milliseconds on a cold JVM.
+ * Counters are thread safe, stages may run on worker threads.
+ * Each command counts into its own scope, threads started by the command inherit it, so commands
+ * running side by side in one JVM keep separate reports. A nested command also counts into its parent.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public final class Metrics {
+    public static final String SCAN = "scan";
+    public static final String HASH = "hash";
+    public static final String DECODE = "decode";
+    public static final String ENCODE = "encode";
+    public static final String PDF_READ = "pdf read";
+    public static final String PDF_WRITE = "pdf write";
+    public static final String DB_QUERY = "db query";
+    public static final String DB_WRITE = "db write";
+
+    // stages outside any command
+    private static final Scope GLOBAL = new Scope(null, null);
+
+    private static final InheritableThreadLocal<Scope> CURRENT = new InheritableThreadLocal<>() {
+        @Override
+        protected Scope initialValue() {
+            return GLOBAL;
+        }
+    };
+
+    private Metrics() {}
+
+    /**
+     * JFR event of one stage
+     */
+    @Name("mylittletools.Stage")
+    @Label("Stage")
+    @Category("MyLittleTools")
+    @Description("One timed stage of a tool operation")
+    static class StageEvent extends Event {
+        @Label("Stage")
+        String stage;
+
+        @Label("Items")
+        long items;
+
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    /**
+     * JFR event of a whole command
+     */
+    @Name("mylittletools.Command")
+    @Label("Command")
+    @Category("MyLittleTools")
+    @Description("One tool command from start to end")
+    static class CommandEvent extends Event {
+        @Label("Option")
+        String option;
+    }
+
+    /**
+     * Accumulated counters of one stage name
+     */
+    private static class StageStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder items = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+    }
+
+    /**
+     * Counters of one command
+     */
+    public static final class Scope {
+        private final Scope parent;
+        private final String option;
+        private final Map<String, StageStats> stages = new ConcurrentHashMap<>();
+        private final long start = System.nanoTime();
+        private final CommandEvent event = jfrStarted() ? new CommandEvent() : null;
+
+        private Scope(Scope parent, String option) {
+            this.parent = parent;
+            this.option = option;
+        }
+    }
+
+    /**
+     * Running stage, closing it records elapsed time
+     */
+    public static final class Stage implements AutoCloseable {
+        private final String name;
+        private final long start = System.nanoTime();
+        private final StageEvent event = jfrStarted() ? new StageEvent() : null;
+        private long items = 0;
+        private long bytes = 0;
+
+        private Stage(String name) {
+            this.name = name;
+            if (event != null) event.begin();
+        }
+
+        public Stage items(long count) {
+            items += count;
+            return this;
+        }
+
+        public Stage bytes(long count) {
+            bytes += count;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - start;
+            for (Scope scope = CURRENT.get(); scope != null; scope = scope.parent) {
+                StageStats stats = scope.stages.computeIfAbsent(name, key -> new StageStats());
+                stats.calls.increment();
+                stats.nanos.add(elapsed);
+                stats.maxNanos.accumulate(elapsed);
+                stats.items.add(items);
+                stats.bytes.add(bytes);
+            }
+            if (event == null) return;
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = name;
+                event.items = items;
+                event.bytes = bytes;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @return true if a flight recording was started, on the command line or later with jcmd
+     */
+    private static boolean jfrStarted() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /**
+     * Start a stage, use with try-with-resources
+     * @param name stage name, one of the constants or any operation specific name
+     * @return running stage
+     */
+    public static Stage stage(String name) {
+        return new Stage(name);
+    }
+
+    /**
+     * Open the scope of a command on the current thread, heap peaks are reset by the outermost command only
+     * @param option command option
+     * @param report true if the report will be printed, the memory beans behind peak heap are slow to load
+     * @return new scope, pass it to {@link #end}
+     */
+    public static Scope begin(String option, boolean report) {
+        Scope parent = CURRENT.get();
+        if (parent == GLOBAL && report) {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+            }
+        }
+        Scope scope = new Scope((parent == GLOBAL) ? null : parent, option);
+        if (scope.event != null) {
+            scope.event.option = option;
+            scope.event.begin();
+        }
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    /**
+     * Close the scope of a command and give the current thread back to the enclosing scope
+     * @param scope scope from {@link #begin}
+     */
+    public static void end(Scope scope) {
+        if (scope.event != null) {
+            scope.event.end();
+            if (scope.event.shouldCommit()) scope.event.commit();
+        }
+        CURRENT.set((scope.parent == null) ? GLOBAL : scope.parent);
+    }
+
+    /**
+     * Sum of peak usage of every heap pool since the outermost {@link #begin}, shared by all commands of the JVM
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static List<String> sortedStages(Scope scope) {
+        List<String> names = new ArrayList<>(scope.stages.keySet());
+        names.sort((a, b) -> Long.compare(scope.stages.get(b).nanos.sum(), scope.stages.get(a).nanos.sum()));
+        return names;
+    }
+
+    /**
+     * Print summary table of the run. Stage time is summed over threads, so parallel stages
+     * can add up to more than the wall time.
+     * @param scope scope of the command
+     */
+    public static void printReport(Scope scope) {
+        double wallSeconds = (System.nanoTime() - scope.start) / 1e9;
+        System.out.printf("[+] Stats: %s in %.2f s, peak heap %.1f MB\n", scope.option, wallSeconds, peakHeap() / 1048576.0);
+        System.out.printf("    %-14s %8s %12s %10s %10s %12s %12s\n", "stage", "calls", "time ms", "max ms", "items", "MB", "MB/s");
+        for (String name : sortedStages(scope)) {
+            StageStats stats = scope.stages.get(name);
+            double millis = stats.nanos.sum() / 1e6;
+            double megabytes = stats.bytes.sum() / 1048576.0;
+            System.out.printf("    %-14s %8d %12.1f %10.1f %10d %12.1f %12.1f\n", name, stats.calls.sum(), millis,
+                    stats.maxNanos.get() / 1e6, stats.items.sum(), megabytes, megabytes / Math.max(millis / 1000, 1e-9));
+        }
+    }
+
+    /**
+     * Write the same report as JSON
+     * @param scope scope of the command
+     * @param path output file
+     * @throws IOException throw if file can't be written
+     */
+    public static void writeJsonReport(Scope scope, Path path) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"option\":\"").append(scope.option.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        json.append(",\"wallNanos\":").append(System.nanoTime() - scope.start);
+        json.append(",\"peakHeapBytes\":").append(peakHeap());
+        json.append(",\"stages\":[");
+        boolean first = true;
+        for (String name : sortedStages(scope)) {
+            StageStats stats = scope.stages.get(name);
+            if (!first) json.append(',');
+            first = false;
+            json.append("{\"name\":\"").append(name).append('"')
+                    .append(",\"calls\":").append(stats.calls.sum())
+                    .append(",\"nanos\":").append(stats.nanos.sum())
+                    .append(",\"maxNanos\":").append(stats.maxNanos.get())
+                    .append(",\"items\":").append(stats.items.sum())
+                    .append(",\"bytes\":").append(stats.bytes.sum())
+                    .append('}');
+        }
+        json.append("]}\n");
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(json.toString());
+        }
+    }
+}
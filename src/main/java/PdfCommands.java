@@ -0,0 +1,413 @@
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessStreamCache;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PDF commands: -p, -wp, -m and -extractImages, the only commands that load PDFBox
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+final class PdfCommands {
+    // pages a extract worker claims at a time
+    private static final int EXTRACT_PAGE_BLOCK = 8;
+
+    private PdfCommands() {}
+
+    /**
+     * Convert multiple jpg images into single pdf
+     */
+    static void jpgsToPdf(CommandOptions options) throws Exception {
+        if (options.has("--watch")) {
+            if (options.has("--page")) throw new IllegalArgumentException("--page is not supported with --watch");
+            Path statePath = Path.of(options.getString("--state", options.get(2) + ".watch"));
+            watchJPGToPDF(options.get(1), options.get(2), statePath, options.getLong("--settle", 2000),
+                    options.getLong("--cache-mb", 64) * 1024 * 1024, compressionOf(options));
+            return;
+        }
+        List<File> imageList = options.getFiles(1, ".jpg");
+        long cacheBudget = options.getLong("--cache-mb", 64) * 1024 * 1024;
+        if (options.has("--page")) {
+            int threads = options.getInt("--threads", Runtime.getRuntime().availableProcessors());
+            new JpgToPdfConverter(options.getString("--page", null), (float) options.getDouble("--dpi", 150),
+                    (float) options.getDouble("--quality", 0.8), threads, options.getInt("--queue", threads * 2), cacheBudget,
+                    compressionOf(options), DecodeBudget.of(options))
+                    .convert(imageList, options.get(2));
+            return;
+        }
+        if (options.has("--dpi") || options.has("--quality")) throw new IllegalArgumentException("--dpi and --quality need --page");
+        convertJPGToPDF(imageList, options.get(2), cacheBudget, compressionOf(options));
+    }
+
+    /**
+     * Convert webp images of a directory into single pdf without intermediate jpg files
+     */
+    static void webpToPdf(CommandOptions options) throws Exception {
+        List<File> imageList = options.getFiles(1, ".webp");
+        int threads = options.getInt("--threads", Runtime.getRuntime().availableProcessors());
+        float quality = (float) options.getDouble("--quality", 0.75);
+        int queueSize = options.getInt("--queue", threads * 2);
+        long streamCacheBudget = options.getLong("--stream-cache-mb", 64) * 1024 * 1024;
+        long cacheBudget = options.getLong("--cache-mb", 64) * 1024 * 1024;
+        new WebpToPdfConverter(threads, quality, queueSize, streamCacheBudget, cacheBudget, compressionOf(options),
+                DecodeBudget.of(options))
+                .convert(imageList, options.get(2));
+    }
+
+    /**
+     * Merge pdfs
+     */
+    static void mergePdfs(CommandOptions options) throws IOException {
+        // merging decodes no image, --max-memory used to mean the stream cache here
+        if (options.has("--max-memory")) throw new IllegalArgumentException("-m decodes no image, use --stream-cache-mb for stream data");
+        List<File> pdfList = options.getFiles(1, ".pdf");
+        long streamCacheBudget = options.getLong("--stream-cache-mb", 64) * 1024 * 1024;
+        long cacheBudget = options.getLong("--cache-mb", 64) * 1024 * 1024;
+        mergePDF(pdfList, options.get(2), streamCacheBudget, cacheBudget, compressionOf(options), options.has("--stats"));
+    }
+
+    /**
+     * Objects are packed into compressed object streams with a cross-reference stream unless --no-compress is given
+     */
+    private static CompressParameters compressionOf(CommandOptions options) {
+        return options.has("--no-compress") ? CompressParameters.NO_COMPRESSION : CompressParameters.DEFAULT_COMPRESSION;
+    }
+
+    /**
+     * Extract images from pdf
+     */
+    static void extractImages(CommandOptions options) throws Exception {
+        int threads = options.getInt("--threads", 1);
+        long cacheBudget = options.getLong("--cache-mb", 64) * 1024 * 1024;
+        extractImagesFromPDF(options.get(1), options.get(2), threads, options.getString("--pages", null), cacheBudget,
+                DecodeBudget.of(options), options.has("--stats"));
+    }
+
+    /**
+     * Extract all the images that merge in pdf.
+     * Page range is split across worker threads, each worker parses its own read-only document
+     * with its own file reader, workers claim pages in small contiguous blocks.
+     * @param filename pdf file name
+     * @param directoryPath where to write images
+     * @param threads number of worker threads
+     * @param pageRange page range like "3-10", "5", "7-" or null for all pages
+     * @param cacheBudget resource cache bytes shared by all workers
+     * @param budget memory for decoded images shared by all workers
+     * @param stats print resource cache hits and misses
+     */
+    private static void extractImagesFromPDF(String filename, String directoryPath, int threads, String pageRange, long cacheBudget,
+                                             DecodeBudget budget, boolean stats) throws Exception {
+        File outputDirectory = new File(directoryPath);
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IOException("Can't create directory: " + directoryPath);
+        }
+        int pageCount;
+        try (Metrics.Stage stage = Metrics.stage(Metrics.PDF_READ);
+             PDDocument document = Loader.loadPDF(new RandomAccessReadBufferedFile(filename))) {
+            pageCount = document.getNumberOfPages();
+            stage.items(1).bytes(new File(filename).length());
+        }
+        int[] range = parsePageRange(pageRange, pageCount);
+        int totalPages = range[1] - range[0] + 1;
+        if (totalPages <= 0) return;
+        int workers = Math.max(1, Math.min(threads, totalPages));
+
+        Set<Object> extracted = ConcurrentHashMap.newKeySet();
+        AtomicInteger nextPage = new AtomicInteger(range[0]);
+        AtomicInteger donePages = new AtomicInteger();
+        AtomicInteger writtenImages = new AtomicInteger();
+        BoundedResourceCache.Stats cacheStats = new BoundedResourceCache.Stats();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(workers)) {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> {
+                    // parser moves the read position, so every worker needs its own reader
+                    try (PDDocument document = Loader.loadPDF(new RandomAccessReadBufferedFile(filename))) {
+                        document.setResourceCache(new BoundedResourceCache(cacheBudget / workers, cacheStats));
+                        ExtractImageFromPDF extractor = new ExtractImageFromPDF(outputDirectory, extracted, budget);
+                        int first;
+                        while ((first = nextPage.getAndAdd(EXTRACT_PAGE_BLOCK)) <= range[1]) {
+                            for (int page = first; page <= Math.min(first + EXTRACT_PAGE_BLOCK - 1, range[1]); page++) {
+                                try (Metrics.Stage stage = Metrics.stage("extract")) {
+                                    extractor.extract(document.getPage(page - 1), page);
+                                    stage.items(1);
+                                }
+                                donePages.incrementAndGet();
+                            }
+                        }
+                        writtenImages.addAndGet(extractor.getImageIndex() - 1);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Void> future : futures) {
+                while (true) {
+                    try {
+                        future.get(1, TimeUnit.SECONDS);
+                        break;
+                    } catch (TimeoutException e) {
+                        double seconds = (System.nanoTime() - start) / 1e9;
+                        System.out.printf("[+] Progress: %d/%d pages, %.1f pages/s\n", donePages.get(), totalPages, donePages.get() / seconds);
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception cause) ? cause : e;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[+] Extracted %d images from %d pages in %.1f s, %.1f pages/s\n",
+                writtenImages.get(), totalPages, seconds, totalPages / Math.max(seconds, 1e-9));
+        if (stats) System.out.printf("[+] Resource cache: %s\n", cacheStats);
+    }
+
+    /**
+     * Parse page range option into first and last page, both inclusive and starting from 1
+     * @param pageRange "a-b", "a", "a-" or null for all pages
+     * @param pageCount number of pages in document
+     * @return first and last page
+     */
+    private static int[] parsePageRange(String pageRange, int pageCount) {
+        if (pageRange == null) return new int[]{1, pageCount};
+        int dash = pageRange.indexOf('-');
+        int first = Integer.parseInt((dash < 0) ? pageRange : pageRange.substring(0, dash));
+        int last = (dash < 0) ? first : (dash == pageRange.length() - 1) ? pageCount : Integer.parseInt(pageRange.substring(dash + 1));
+        if (first < 1 || first > last) throw new IllegalArgumentException("Invalid page range: " + pageRange);
+        if (first > pageCount) throw new IllegalArgumentException("Page range " + pageRange + " starts after the last page " + pageCount);
+        return new int[]{first, Math.min(last, pageCount)};
+    }
+
+    /**
+     * Merge list of pdf format file into one single pdf.
+     * Stream data is kept in main memory up to the budget and spills to scratch files after that,
+     * each source is closed right after it is appended so only one source is open at a time.
+     * Identical resources are shared and resources no page uses are removed before writing.
+     * @param pdfList list of pdf files
+     * @param outputName final output name
+     * @param streamCacheBudget max main memory bytes for stream data
+     * @param cacheBudget resource cache bytes of each open document
+     * @param compression compression of the written file
+     * @param stats print resource cache hits and misses
+     */
+    private static void mergePDF(List<File> pdfList, String outputName, long streamCacheBudget, long cacheBudget,
+                                 CompressParameters compression, boolean stats) throws IOException {
+        if (pdfList == null || pdfList.isEmpty()) return;
+        if (outputName == null || outputName.isEmpty()) outputName = "output.pdf";
+        RandomAccessStreamCache.StreamCacheCreateFunction streamCache = MemoryUsageSetting.setupMixed(streamCacheBudget).streamCache;
+        PDFMergerUtility mergePDF = new PDFMergerUtility();
+        BoundedResourceCache.Stats cacheStats = new BoundedResourceCache.Stats();
+        try (PDDocument destination = new PDDocument(streamCache)) {
+            destination.setResourceCache(new BoundedResourceCache(cacheBudget, cacheStats));
+            for (File pdfFile : pdfList) {
+                System.out.printf("[+] Reading: %s...", pdfFile.getPath());
+                try (Metrics.Stage stage = Metrics.stage(Metrics.PDF_READ);
+                     PDDocument source = Loader.loadPDF(pdfFile, streamCache)) {
+                    source.setResourceCache(new BoundedResourceCache(cacheBudget, cacheStats));
+                    mergePDF.appendDocument(destination, source);
+                    stage.items(source.getNumberOfPages()).bytes(pdfFile.length());
+                }
+                System.out.println("Done!");
+            }
+
+            PdfResourceDeduplicator deduplicator = new PdfResourceDeduplicator();
+            try (Metrics.Stage stage = Metrics.stage("dedupe")) {
+                deduplicator.deduplicate(destination);
+                stage.items(deduplicator.getReplacedFonts() + deduplicator.getReplacedXObjects());
+            }
+            System.out.printf("[+] Deduplicated %d fonts and %d XObjects\n",
+                    deduplicator.getReplacedFonts(), deduplicator.getReplacedXObjects());
+
+            PdfResourcePruner pruner = new PdfResourcePruner();
+            try (Metrics.Stage stage = Metrics.stage("prune")) {
+                pruner.prune(destination);
+                stage.items(pruner.getRemoved());
+            }
+            System.out.printf("[+] Pruned %d unused resources\n", pruner.getRemoved());
+
+            System.out.printf("[+] Writing output: %s...", outputName);
+            savePDF(destination, outputName, compression);
+            System.out.println("Done!");
+        }
+        if (stats) System.out.printf("[+] Resource cache: %s\n", cacheStats);
+    }
+
+    /**
+     * Convert multiple JPG format images into a single PDF file
+     * @param imageList a list of jpg files
+     * @param saveName final output pdf save name
+     * @param cacheBudget resource cache bytes
+     * @param compression compression of the written file
+     */
+    private static void convertJPGToPDF(List<File> imageList, String saveName, long cacheBudget,
+                                        CompressParameters compression) throws IOException {
+        if (imageList == null || imageList.isEmpty()) return;
+        if (saveName == null || saveName.isEmpty()) saveName = "output.pdf";
+        try (PDDocument document = new PDDocument()) {
+            document.setResourceCache(new BoundedResourceCache(cacheBudget));
+            for (File imageFile : imageList) {
+                System.out.printf("[+] Reading: %s...", imageFile.getPath());
+                document.addPage(createJPGPage(imageFile, document));
+                System.out.println("Done!");
+            }
+            System.out.printf("[+] Writing output: %s...", saveName);
+            savePDF(document, saveName, compression);
+            System.out.println("Done!");
+        }
+    }
+
+    /**
+     * Watch a directory and keep a pdf of its jpg images up to date. New images are appended as pages,
+     * a changed image replaces its page in place. Changes are written with an incremental save, the
+     * pages already in the pdf are copied as they are and never parsed or written again.
+     * @param directory watched directory
+     * @param saveName output pdf
+     * @param statePath watch state, records which image is on which page
+     * @param settleMillis quiet time before a new image is added
+     * @param cacheBudget resource cache bytes
+     * @param compression compression of the first full save, incremental saves append classic sections
+     */
+    private static void watchJPGToPDF(String directory, String saveName, Path statePath, long settleMillis, long cacheBudget,
+                                      CompressParameters compression) throws Exception {
+        DirectoryWatcher watcher = new DirectoryWatcher(directory, ".jpg", statePath, settleMillis);
+        File output = new File(saveName);
+        if (output.exists() && watcher.isFresh()) {
+            throw new IOException("Output exists but has no watch state, remove it first: " + saveName);
+        }
+        if (!output.exists() && !watcher.isFresh()) {
+            throw new IOException("Watch state has no output pdf, remove it first: " + statePath);
+        }
+        watcher.run(files -> updatePDF(watcher, files, output, cacheBudget, compression));
+    }
+
+    /**
+     * Add or replace pages for images of one watch batch
+     * @return images now in the pdf, in the order their pages were appended
+     */
+    private static List<Path> updatePDF(DirectoryWatcher watcher, List<Path> imageFiles, File output, long cacheBudget,
+                                        CompressParameters compression) throws IOException {
+        List<Path> succeeded = new ArrayList<>();
+        boolean exists = output.exists();
+        Path tempFile = Path.of(output.getPath() + ".tmp");
+        try (PDDocument document = exists ? loadPDF(output) : new PDDocument()) {
+            document.setResourceCache(new BoundedResourceCache(cacheBudget));
+            for (Path imageFile : imageFiles) {
+                int index = exists ? watcher.indexOf(imageFile.getFileName().toString()) : -1;
+                System.out.printf("[+] %s: %s...", (index < 0) ? "Adding" : "Replacing page " + (index + 1), imageFile);
+                try {
+                    PDPage page = createJPGPage(imageFile.toFile(), document);
+                    if (index < 0) {
+                        document.addPage(page);
+                    } else {
+                        document.getPages().insertBefore(page, document.getPage(index));
+                        document.removePage(index + 1);
+                    }
+                    succeeded.add(imageFile);
+                    System.out.println("Done!");
+                } catch (IOException | RuntimeException e) {
+                    System.out.println();
+                    System.err.printf("[!] Failed: %s (%s)\n", imageFile, e.getMessage());
+                }
+            }
+            if (succeeded.isEmpty()) return succeeded;
+            System.out.printf("[+] Writing output: %s...", output.getPath());
+            try (Metrics.Stage stage = Metrics.stage(Metrics.PDF_WRITE)) {
+                if (exists) {
+                    // incremental save copies the original bytes and appends only the changed objects,
+                    // it goes to a temp file because the document still reads from the original
+                    try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                        document.saveIncremental(outputStream);
+                    }
+                } else {
+                    document.save(tempFile.toFile(), compression);
+                }
+                stage.items(succeeded.size()).bytes(Files.size(tempFile) - (exists ? output.length() : 0));
+            }
+        }
+        Files.move(tempFile, output.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Done!");
+        return succeeded;
+    }
+
+    private static PDDocument loadPDF(File pdfFile) throws IOException {
+        try (Metrics.Stage stage = Metrics.stage(Metrics.PDF_READ)) {
+            PDDocument document = Loader.loadPDF(pdfFile);
+            stage.items(1).bytes(pdfFile.length());
+            return document;
+        }
+    }
+
+    /**
+     * Create a page sized to a jpg image with the image drawn over the whole page
+     * @param imageFile jpg file
+     * @param document target document, the page is not added to it
+     * @return page
+     */
+    private static PDPage createJPGPage(File imageFile, PDDocument document) throws IOException {
+        PDImageXObject imageXObject;
+        try (Metrics.Stage stage = Metrics.stage("embed")) {
+            imageXObject = createJPGImage(imageFile, document);
+            stage.items(1).bytes(imageFile.length());
+        }
+        PDPage page = new PDPage(new PDRectangle(imageXObject.getWidth(), imageXObject.getHeight()));
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            contentStream.drawImage(imageXObject, 0, 0, imageXObject.getWidth(), imageXObject.getHeight());
+        }
+        return page;
+    }
+
+    /**
+     * Save document as one timed pdf write stage
+     * @param document document to save
+     * @param saveName output file
+     * @param compression object and cross-reference streams, or classic uncompressed layout
+     */
+    static void savePDF(PDDocument document, String saveName, CompressParameters compression) throws IOException {
+        try (Metrics.Stage stage = Metrics.stage(Metrics.PDF_WRITE)) {
+            document.save(saveName, compression);
+            stage.items(document.getNumberOfPages()).bytes(new File(saveName).length());
+        }
+    }
+
+    /**
+     * Create image XObject from jpg file, size comes from the SOF header and the DCT stream
+     * is embedded byte-for-byte without decoding. Falls back to PDFBox for jpg it can't embed raw.
+     * @param imageFile jpg file
+     * @param document target document
+     * @return image XObject
+     */
+    static PDImageXObject createJPGImage(File imageFile, PDDocument document) throws IOException {
+        JpegHeader header = JpegHeader.read(imageFile.toPath());
+        if (header == null || !header.canEmbedRaw()) {
+            return PDImageXObject.createFromFile(imageFile.getPath(), document);
+        }
+        try (InputStream input = Files.newInputStream(imageFile.toPath())) {
+            return header.createImage(document, input);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Point identical fonts and images of a merged document to one shared object, found by content hash.
+ * Objects no longer referenced are simply not written when the document is saved.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class PdfResourceDeduplicator {
+    // resource categories that are deduplicated
+    private static final COSName[] CATEGORIES = {COSName.FONT, COSName.XOBJECT};
+
+    // content hash of every object already visited
+    private final Map<COSBase, String> hashCache = new IdentityHashMap<>();
+
+    // first object seen for each content hash
+    private final Map<String, COSBase> canonical = new HashMap<>();
+
+    // resource dictionaries already processed, shared dictionaries only once
+    private final Set<COSDictionary> doneResources = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final byte[] buffer = new byte[64 * 1024];
+
+    // number of reference cycles met so far, hash of a subtree with a cycle depends on the path so it is not cached
+    private int cycles = 0;
+    private int replacedFonts = 0;
+    private int replacedXObjects = 0;
+
+    /**
+     * Deduplicate fonts and XObjects used by every page of the document
+     * @param document merged document
+     * @throws IOException throw if any stream can't be read
+     */
+    public void deduplicate(PDDocument document) throws IOException {
+        for (PDPage page : document.getPages()) {
+            COSDictionary resources = page.getCOSObject().getCOSDictionary(COSName.RESOURCES);
+            if (resources != null) deduplicateResources(resources);
+        }
+    }
+
+    public int getReplacedFonts() {
+        return replacedFonts;
+    }
+
+    public int getReplacedXObjects() {
+        return replacedXObjects;
+    }
+
+    /**
+     * Replace duplicate entries of one resource dictionary, form XObjects are processed recursively
+     */
+    private void deduplicateResources(COSDictionary resources) throws IOException {
+        if (!doneResources.add(resources)) return;
+        for (COSName category : CATEGORIES) {
+            COSDictionary entries = resources.getCOSDictionary(category);
+            if (entries == null) continue;
+            for (COSName name : new ArrayList<>(entries.keySet())) {
+                COSBase value = entries.getDictionaryObject(name);
+                if (!(value instanceof COSDictionary)) continue;
+
+                if (value instanceof COSStream stream && COSName.FORM.equals(stream.getCOSName(COSName.SUBTYPE))) {
+                    COSDictionary formResources = stream.getCOSDictionary(COSName.RESOURCES);
+                    if (formResources != null) deduplicateResources(formResources);
+                }
+
+                String key = category.getName() + ':' + hashOf(value, Collections.newSetFromMap(new IdentityHashMap<>()));
+                COSBase first = canonical.putIfAbsent(key, value);
+                if (first != null && first != value) {
+                    entries.setItem(name, first);
+                    if (category == COSName.FONT) replacedFonts++;
+                    else replacedXObjects++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hash object content deeply, indirect references are followed so equal content from
+     * different source files gives the same hash
+     * @param base object to hash
+     * @param visiting objects on the current path, to stop on reference cycles
+     * @return hex hash
+     */
+    private String hashOf(COSBase base, Set<COSBase> visiting) throws IOException {
+        if (base instanceof COSObject object) base = object.getObject();
+        // simple values are short enough to be used as they are
+        if (base == null) return "null";
+        if (base instanceof COSName name) return "n" + name.getName();
+        if (base instanceof COSInteger integer) return "i" + integer.longValue();
+        if (base instanceof COSFloat number) return "f" + number.floatValue();
+        if (base instanceof COSBoolean bool) return "b" + bool.getValue();
+        if (base instanceof COSString string) return "t" + FileHasher.toHex(string.getBytes());
+        if (!(base instanceof COSDictionary) && !(base instanceof COSArray)) return base.getClass().getSimpleName();
+
+        String cached = hashCache.get(base);
+        if (cached != null) return cached;
+        if (!visiting.add(base)) {
+            cycles++;
+            return "cycle";
+        }
+        int cyclesBefore = cycles;
+
+        MessageDigest digest = FileHasher.newDigest();
+        if (base instanceof COSDictionary dictionary) {
+            digest.update((byte) (base instanceof COSStream ? 's' : 'd'));
+            List<COSName> keys = new ArrayList<>(dictionary.keySet());
+            keys.sort(null);
+            for (COSName key : keys) {
+                // parent links point back up the tree and Length is implied by the stream data
+                if (COSName.PARENT.equals(key) || COSName.LENGTH.equals(key)) continue;
+                update(digest, key.getName());
+                update(digest, hashOf(dictionary.getItem(key), visiting));
+            }
+            if (base instanceof COSStream stream) {
+                try (InputStream input = stream.createRawInputStream()) {
+                    int read;
+                    while ((read = input.read(buffer)) != -1) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+        } else {
+            COSArray array = (COSArray) base;
+            digest.update((byte) 'a');
+            for (int i = 0; i < array.size(); i++) {
+                update(digest, hashOf(array.get(i), visiting));
+            }
+        }
+        visiting.remove(base);
+
+        String hash = FileHasher.toHex(digest.digest());
+        if (cycles == cyclesBefore) hashCache.put(base, hash);
+        return hash;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
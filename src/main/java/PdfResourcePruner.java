@@ -0,0 +1,151 @@
+import org.apache.pdfbox.contentstream.PDContentStream;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remove fonts, XObjects and graphics states that no content stream uses from the resource dictionaries
+ * of a document. Merged pages often carry the whole resource dictionary of their source, once an entry is
+ * gone the object behind it is no longer reachable and is not written when the document is saved.
+ * A resource dictionary shared by several pages keeps everything any of them uses, a dictionary whose
+ * use can't be told for sure, like one a pattern or Type 3 font without own resources may draw from,
+ * is left as it is.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class PdfResourcePruner {
+    // resource categories that are pruned
+    private static final COSName[] CATEGORIES = {COSName.FONT, COSName.XOBJECT, COSName.EXT_G_STATE};
+
+    // names used from every scanned resource dictionary, as "category/name"
+    private final Map<COSDictionary, Set<String>> used = new IdentityHashMap<>();
+
+    // resource dictionaries that must be kept as they are
+    private final Set<COSDictionary> unsafe = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // form XObjects already scanned, with the resource dictionaries they were scanned against
+    private final Map<COSStream, Set<COSDictionary>> scannedForms = new IdentityHashMap<>();
+
+    private int removed = 0;
+
+    /**
+     * Prune resources of every page and of the form XObjects they draw
+     * @param document document to prune
+     * @throws IOException throw if a content stream can't be read
+     */
+    public void prune(PDDocument document) throws IOException {
+        for (PDPage page : document.getPages()) {
+            if (page.getResources() == null) continue;
+            scan(page, page.getResources().getCOSObject());
+        }
+        for (Map.Entry<COSDictionary, Set<String>> entry : used.entrySet()) {
+            if (!unsafe.contains(entry.getKey())) removeUnused(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public int getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Record every resource name one content stream uses, forms it draws are scanned too
+     */
+    private void scan(PDContentStream content, COSDictionary resources) throws IOException {
+        Set<String> names = used.computeIfAbsent(resources, key -> new HashSet<>());
+        if (unsafe.contains(resources)) return;
+        checkIndirectUse(resources);
+        List<COSBase> operands = new ArrayList<>();
+        PDFStreamParser parser = new PDFStreamParser(content);
+        try {
+            Object token;
+            while ((token = parser.parseNextToken()) != null) {
+                if (token instanceof COSBase operand) {
+                    operands.add(operand);
+                    continue;
+                }
+                if (token instanceof Operator operator && !operands.isEmpty() && operands.get(0) instanceof COSName name) {
+                    switch (operator.getName()) {
+                        case "Tf" -> names.add(COSName.FONT.getName() + '/' + name.getName());
+                        case "gs" -> names.add(COSName.EXT_G_STATE.getName() + '/' + name.getName());
+                        case "Do" -> {
+                            names.add(COSName.XOBJECT.getName() + '/' + name.getName());
+                            scanForm(resources, name);
+                        }
+                        default -> { }
+                    }
+                }
+                operands.clear();
+            }
+        } catch (IOException e) {
+            // content that can't be parsed may use anything
+            unsafe.add(resources);
+        } finally {
+            parser.close();
+        }
+    }
+
+    private void scanForm(COSDictionary resources, COSName name) throws IOException {
+        COSDictionary xObjects = resources.getCOSDictionary(COSName.XOBJECT);
+        if (xObjects == null) return;
+        if (!(xObjects.getDictionaryObject(name) instanceof COSStream stream)) return;
+        if (!COSName.FORM.equals(stream.getCOSName(COSName.SUBTYPE))) return;
+        COSDictionary formResources = stream.getCOSDictionary(COSName.RESOURCES);
+        // a form without own resources draws from the resources of whoever draws it,
+        // so it is scanned again for every other resource dictionary it is drawn from
+        COSDictionary drawnFrom = (formResources != null) ? formResources : resources;
+        Set<COSDictionary> scannedWith = scannedForms.computeIfAbsent(stream,
+                key -> Collections.newSetFromMap(new IdentityHashMap<>()));
+        if (!scannedWith.add(drawnFrom)) return;
+        scan(new PDFormXObject(stream), drawnFrom);
+    }
+
+    /**
+     * Patterns and Type 3 fonts without own resources may use names of this dictionary
+     * from content that is not scanned
+     */
+    private void checkIndirectUse(COSDictionary resources) {
+        COSDictionary patterns = resources.getCOSDictionary(COSName.PATTERN);
+        if (patterns != null) {
+            for (COSName name : patterns.keySet()) {
+                if (patterns.getDictionaryObject(name) instanceof COSStream pattern
+                        && pattern.getCOSDictionary(COSName.RESOURCES) == null) unsafe.add(resources);
+            }
+        }
+        COSDictionary fonts = resources.getCOSDictionary(COSName.FONT);
+        if (fonts != null) {
+            for (COSName name : fonts.keySet()) {
+                if (fonts.getDictionaryObject(name) instanceof COSDictionary font
+                        && COSName.TYPE3.equals(font.getCOSName(COSName.SUBTYPE))
+                        && font.getCOSDictionary(COSName.RESOURCES) == null) unsafe.add(resources);
+            }
+        }
+    }
+
+    private void removeUnused(COSDictionary resources, Set<String> names) {
+        for (COSName category : CATEGORIES) {
+            COSDictionary entries = resources.getCOSDictionary(category);
+            if (entries == null) continue;
+            for (COSName name : new ArrayList<>(entries.keySet())) {
+                if (!names.contains(category.getName() + '/' + name.getName())) {
+                    entries.removeItem(name);
+                    removed++;
+                }
+            }
+        }
+    }
+}
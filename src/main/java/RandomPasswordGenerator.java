@@ -1,14 +1,31 @@
-import java.io.File;
+import org.sqlite.SQLiteErrorCode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
- * Generate random password class
+ * Generate random password class.
+ * Passwords are generated in batches. Only a fixed size digest of each password is stored, a bloom filter
+ * in front of the table answers most uniqueness checks, the rest of a batch is checked with one query.
+ * New passwords are inserted with one transaction per batch.
  * @author li1345825138
  * @date 11/7/2024
  */
@@ -16,8 +33,36 @@ public class RandomPasswordGenerator implements AutoCloseable {
     // password symbols
     private static final String symbols = "ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnpqrstuvwxyz0123456789!#$@";
 
+    public static final String DATABASE_LOCATION = "./database.sql";
+
+    // candidates checked by one query and inserted by one transaction, below sqlite host parameter limit
+    private static final int BATCH_SIZE = 500;
+
+    // rows per executeBatch call while migrating
+    private static final int MIGRATE_BATCH_SIZE = 10_000;
+
+    // stored digest is the first 128 bits of SHA-256, enough to keep collisions out of reach
+    private static final int DIGEST_LENGTH = 16;
+
+    // smallest filter, so a new database does not resize the filter on every run
+    private static final long MIN_FILTER_CAPACITY = 1 << 20;
+
+    private static final int MIN_LENGTH = 8;
+    private static final int MAX_LENGTH = 1024;
+
     // password length
-    private int length;
+    private final int length;
+
+    // bloom filter saved next to the database
+    private final Path filterLocation;
+
+    private final SecureRandom random = new SecureRandom();
+
+    // random bytes are drawn in blocks, one SecureRandom call per symbol is much slower
+    private final byte[] randomBytes = new byte[4096];
+    private int randomPosition = randomBytes.length;
+
+    private final MessageDigest messageDigest = FileHasher.newDigest();
 
     // sql connection
     private Connection sqlConnection;
@@ -25,6 +70,15 @@ public class RandomPasswordGenerator implements AutoCloseable {
     // sql execute statement
     private Statement statement;
 
+    // reused for every batch
+    private PreparedStatement existsStatement;
+    private PreparedStatement insertStatement;
+
+    private BloomFilter filter;
+
+    // candidates the filter could not rule out, for the run summary
+    private long databaseChecks = 0;
+
     /**
      * Get SQLite Driver connection
      * @param location the location of sqlite database
@@ -38,30 +92,79 @@ public class RandomPasswordGenerator implements AutoCloseable {
     }
 
     /**
-     * Store new random password into database
-     * @param randPassword new random password
+     * Next random symbol, bytes that would favour the first symbols are skipped so every symbol is equally likely
      */
-    private void updateDatabase(String randPassword) throws SQLException {
-        String insertStatement = "INSERT INTO prevPass (password) VALUES (?)";
-        PreparedStatement preparedStatement = this.sqlConnection.prepareStatement(insertStatement);
-        preparedStatement.setString(1, randPassword);
-        preparedStatement.executeUpdate();
+    private char nextSymbol() {
+        int limit = 256 - 256 % symbols.length();
+        while (true) {
+            if (randomPosition == randomBytes.length) {
+                random.nextBytes(randomBytes);
+                randomPosition = 0;
+            }
+            int value = randomBytes[randomPosition++] & 0xFF;
+            if (value < limit) return symbols.charAt(value % symbols.length());
+        }
     }
 
     /**
-     * Check if current random password is already on database
-     * @param randPassword new random password
-     * @return true if already exists on database, otherwise false
+     * Digest stored for a password
+     * @param password plain password
+     * @return first {@link #DIGEST_LENGTH} bytes of SHA-256
+     */
+    private byte[] digestOf(String password) {
+        return Arrays.copyOf(messageDigest.digest(password.getBytes(StandardCharsets.UTF_8)), DIGEST_LENGTH);
+    }
+
+    /**
+     * Store new random passwords into database in one transaction, then add them to the filter
+     * @param digests digests of new random passwords
+     * @throws SQLException throw if any sql exception cause, nothing of the batch is stored then
+     */
+    private void updateDatabase(List<byte[]> digests) throws SQLException {
+        long lastRowId;
+        try (Metrics.Stage stage = Metrics.stage(Metrics.DB_WRITE)) {
+            for (byte[] digest : digests) {
+                this.insertStatement.setBytes(1, digest);
+                this.insertStatement.addBatch();
+            }
+            this.insertStatement.executeBatch();
+            try (ResultSet resultSet = this.statement.executeQuery("SELECT last_insert_rowid()")) {
+                lastRowId = resultSet.next() ? resultSet.getLong(1) : 0;
+            }
+            this.sqlConnection.commit();
+            stage.items(digests.size());
+        } catch (SQLException e) {
+            this.insertStatement.clearBatch();
+            this.sqlConnection.rollback();
+            throw e;
+        }
+        digests.forEach(filter::add);
+        // rows of this transaction are contiguous, the filter only covers them if nothing was written in between
+        if (filter.getLastId() + digests.size() == lastRowId) filter.setLastId(lastRowId);
+    }
+
+    /**
+     * Remove candidates that are already on database
+     * @param candidates digest to password of new random passwords, at most {@link #BATCH_SIZE}
      * @throws SQLException throw if any sql exception cause
      */
-    private boolean isOnDatabase(String randPassword) throws SQLException {
-        if (randPassword == null || randPassword.isEmpty()) return true;
-        String existsQuery = "SELECT EXISTS (SELECT 1 FROM prevPass WHERE password=?)";
-        PreparedStatement preparedStatement = this.sqlConnection.prepareStatement(existsQuery);
-        preparedStatement.setString(1, randPassword);
-        ResultSet resultSet = preparedStatement.executeQuery();
-        resultSet.next();
-        return resultSet.getInt(1) == 1;
+    private void removeOnDatabase(Map<ByteBuffer, String> candidates) throws SQLException {
+        // unused parameters repeat the first candidate, so one statement serves every batch size
+        byte[] first = candidates.keySet().iterator().next().array();
+        int index = 1;
+        for (ByteBuffer candidate : candidates.keySet()) {
+            this.existsStatement.setBytes(index++, candidate.array());
+        }
+        while (index <= BATCH_SIZE) {
+            this.existsStatement.setBytes(index++, first);
+        }
+        try (Metrics.Stage stage = Metrics.stage(Metrics.DB_QUERY);
+             ResultSet resultSet = this.existsStatement.executeQuery()) {
+            stage.items(candidates.size());
+            while (resultSet.next()) {
+                candidates.remove(ByteBuffer.wrap(resultSet.getBytes(1)));
+            }
+        }
     }
 
     /**
@@ -69,60 +172,226 @@ public class RandomPasswordGenerator implements AutoCloseable {
      * @throws SQLException
      */
     private void createTableIfNotExists() throws SQLException {
-        this.statement.executeUpdate("CREATE TABLE IF NOT EXISTS prevPass (id INTEGER PRIMARY KEY AUTOINCREMENT, password TEXT)");
-        this.statement.executeUpdate("CREATE INDEX idx_password ON prevPass (password)");
+        this.statement.executeUpdate("CREATE TABLE IF NOT EXISTS prevPass (id INTEGER PRIMARY KEY AUTOINCREMENT, digest BLOB NOT NULL UNIQUE)");
     }
 
     /**
-     * Constructor the random pass class
-     * @param length The length of random password
-     */
-    public RandomPasswordGenerator(int length) throws SQLException, ClassNotFoundException {
-        this.length = (Math.max(length, 8) >= 1024) ? 1024 : length;
-        File file = new File("./database.sql");
-        if (!file.exists()) {
-            this.sqlConnection = getSQLiteConnection("./database.sql");
-            this.statement = this.sqlConnection.createStatement();
-            createTableIfNotExists();
-        } else {
-            this.sqlConnection = getSQLiteConnection("./database.sql");
-            this.statement = this.sqlConnection.createStatement();
+     * Replace plaintext password column of an old database with digests, row ids are kept
+     * @throws SQLException throw if any sql exception cause
+     * @throws IOException throw if old filter can't be deleted
+     */
+    private void migrateIfNeeded() throws SQLException, IOException {
+        boolean plaintext = false;
+        try (ResultSet resultSet = this.statement.executeQuery("PRAGMA table_info(prevPass)")) {
+            while (resultSet.next()) {
+                if ("password".equals(resultSet.getString("name"))) plaintext = true;
+            }
+        }
+        if (!plaintext) return;
+
+        System.out.print("[+] Migrating stored passwords to digests...");
+        long migrated = 0;
+        this.sqlConnection.setAutoCommit(false);
+        this.statement.executeUpdate("CREATE TABLE prevPassDigest (id INTEGER PRIMARY KEY AUTOINCREMENT, digest BLOB NOT NULL UNIQUE)");
+        try (Statement selectStatement = this.sqlConnection.createStatement();
+             PreparedStatement insert = this.sqlConnection.prepareStatement("INSERT OR IGNORE INTO prevPassDigest (id, digest) VALUES (?, ?)");
+             ResultSet resultSet = selectStatement.executeQuery("SELECT id, password FROM prevPass WHERE password IS NOT NULL ORDER BY id")) {
+            while (resultSet.next()) {
+                insert.setLong(1, resultSet.getLong(1));
+                insert.setBytes(2, digestOf(resultSet.getString(2)));
+                insert.addBatch();
+                if (++migrated % MIGRATE_BATCH_SIZE == 0) insert.executeBatch();
+            }
+            insert.executeBatch();
         }
+        this.statement.executeUpdate("DROP TABLE prevPass");
+        this.statement.executeUpdate("ALTER TABLE prevPassDigest RENAME TO prevPass");
+        this.sqlConnection.commit();
+        this.sqlConnection.setAutoCommit(true);
+        // give the space of plaintext rows and their index back
+        this.statement.executeUpdate("VACUUM");
+        Files.deleteIfExists(filterLocation);
+        System.out.printf("Done! %d passwords\n", migrated);
+    }
+
+    /**
+     * Load saved filter and add rows written after it was saved,
+     * rebuild it from the table when it is missing, stale or too small.
+     * A filter holding another number of digests than the table has belongs to another
+     * state of the table and is rebuilt too.
+     * @param expected number of passwords about to be generated
+     */
+    private void loadFilter(long expected) throws SQLException, IOException {
+        long maxId = 0;
+        long rows = 0;
+        try (ResultSet resultSet = this.statement.executeQuery("SELECT COALESCE(MAX(id), 0), COUNT(*) FROM prevPass")) {
+            if (resultSet.next()) {
+                maxId = resultSet.getLong(1);
+                rows = resultSet.getLong(2);
+            }
+        }
+        if (filter == null) filter = BloomFilter.load(filterLocation);
+        if (filter != null && filter.getLastId() <= maxId) {
+            addRowsAfter(filter.getLastId());
+            if (filter.getEntries() == rows && filter.hasRoomFor(expected)) return;
+        }
+        rebuildFilter(rows, expected);
+    }
+
+    /**
+     * Build a new filter from every row of the table
+     * @param rows number of rows in the table
+     * @param expected number of passwords about to be generated
+     */
+    private void rebuildFilter(long rows, long expected) throws SQLException {
+        filter = new BloomFilter(Math.max(MIN_FILTER_CAPACITY, 2 * (rows + expected)));
+        addRowsAfter(0);
+    }
+
+    /**
+     * Add digests of rows with id greater than the given id to the filter
+     */
+    private void addRowsAfter(long id) throws SQLException {
+        try (PreparedStatement preparedStatement = this.sqlConnection.prepareStatement("SELECT id, digest FROM prevPass WHERE id > ? ORDER BY id")) {
+            preparedStatement.setFetchSize(MIGRATE_BATCH_SIZE);
+            preparedStatement.setLong(1, id);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    filter.add(resultSet.getBytes(2));
+                    filter.setLastId(resultSet.getLong(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor the random pass class
+     * @param length The length of random password, clamped to 8 - 1024
+     */
+    public RandomPasswordGenerator(int length) throws SQLException, ClassNotFoundException, IOException {
+        this(length, DATABASE_LOCATION);
+    }
+
+    /**
+     * Constructor the random pass class
+     * @param length The length of random password, clamped to 8 - 1024
+     * @param location location of password database
+     */
+    public RandomPasswordGenerator(int length, String location) throws SQLException, ClassNotFoundException, IOException {
+        this.length = Math.min(Math.max(length, MIN_LENGTH), MAX_LENGTH);
+        this.filterLocation = Path.of(location + ".bloom");
+        this.sqlConnection = getSQLiteConnection(location);
+        this.statement = this.sqlConnection.createStatement();
+        this.statement.executeUpdate("PRAGMA journal_mode=WAL");
+        this.statement.executeUpdate("PRAGMA synchronous=NORMAL");
+        migrateIfNeeded();
+        createTableIfNotExists();
+        this.sqlConnection.setAutoCommit(false);
+        String placeholders = String.join(",", Collections.nCopies(BATCH_SIZE, "?"));
+        this.existsStatement = this.sqlConnection.prepareStatement("SELECT digest FROM prevPass WHERE digest IN (" + placeholders + ")");
+        this.insertStatement = this.sqlConnection.prepareStatement("INSERT INTO prevPass (digest) VALUES (?)");
     }
 
     /**
      * Generate random password
      * @return random password
      */
-    public String generateRandomPassword() throws SQLException {
-        StringBuilder sb = new StringBuilder();
-        Random random = new Random(System.currentTimeMillis());
-        int symbolLength = symbols.length();
-        char currChar;
-        String randomPass;
-        int index;
-        do {
-            for (int i = 0; i < this.length; i++) {
-                index = random.nextInt(symbolLength);
-                currChar = symbols.charAt(index);
-                sb.append(currChar);
+    public String generateRandomPassword() throws SQLException, IOException {
+        List<String> passwords = new ArrayList<>(1);
+        generateRandomPasswords(1, passwords::add);
+        return passwords.get(0);
+    }
+
+    /**
+     * Generate unique random passwords, every password is stored before it is handed out
+     * @param count number of passwords
+     * @param consumer receives each new password
+     * @throws SQLException throw if any sql exception cause
+     * @throws IOException throw if saved filter can't be read
+     */
+    public void generateRandomPasswords(long count, Consumer<String> consumer) throws SQLException, IOException {
+        loadFilter(count);
+        char[] chars = new char[this.length];
+        Map<ByteBuffer, String> fresh = new LinkedHashMap<>();
+        Map<ByteBuffer, String> maybeStored = new LinkedHashMap<>();
+        long remaining = count;
+        while (remaining > 0) {
+            int batch = (int) Math.min(remaining, BATCH_SIZE);
+            fresh.clear();
+            maybeStored.clear();
+            while (fresh.size() + maybeStored.size() < batch) {
+                for (int i = 0; i < this.length; i++) {
+                    chars[i] = nextSymbol();
+                }
+                String candidate = new String(chars);
+                byte[] digest = digestOf(candidate);
+                // the filter says "definitely new" for almost every candidate, only the rest goes to database
+                if (filter.mightContain(digest)) maybeStored.put(ByteBuffer.wrap(digest), candidate);
+                else fresh.put(ByteBuffer.wrap(digest), candidate);
             }
-            randomPass = sb.toString();
-        } while (isOnDatabase(randomPass));
-        updateDatabase(randomPass);
-        return randomPass;
+            if (!maybeStored.isEmpty()) {
+                databaseChecks += maybeStored.size();
+                removeOnDatabase(maybeStored);
+                fresh.putAll(maybeStored);
+            }
+            if (fresh.isEmpty()) continue;
+            try {
+                updateDatabase(digestsOf(fresh));
+            } catch (SQLException e) {
+                if (e.getErrorCode() != SQLiteErrorCode.SQLITE_CONSTRAINT.code) throw e;
+                // filter said "definitely new" for a stored digest, it does not match the table
+                System.err.println("[!] Password filter does not match database, rebuilding it");
+                long rows;
+                try (ResultSet resultSet = this.statement.executeQuery("SELECT COUNT(*) FROM prevPass")) {
+                    rows = resultSet.next() ? resultSet.getLong(1) : 0;
+                }
+                rebuildFilter(rows, remaining);
+                databaseChecks += fresh.size();
+                removeOnDatabase(fresh);
+                if (fresh.isEmpty()) continue;
+                updateDatabase(digestsOf(fresh));
+            }
+            fresh.values().forEach(consumer);
+            remaining -= fresh.size();
+        }
+    }
+
+    private static List<byte[]> digestsOf(Map<ByteBuffer, String> candidates) {
+        List<byte[]> digests = new ArrayList<>(candidates.size());
+        for (ByteBuffer key : candidates.keySet()) digests.add(key.array());
+        return digests;
     }
 
     /**
-     * Close sql resources
+     * @return number of candidates the bloom filter could not rule out and were checked on database
+     */
+    public long getDatabaseChecks() {
+        return databaseChecks;
+    }
+
+    /**
+     * Save filter and close sql resources
      * @throws SQLException
+     * @throws IOException throw if filter can't be saved
      */
-    public void close() throws SQLException {
-        if (this.statement != null) {
-            this.statement.close();
-        }
-        if (this.sqlConnection != null) {
-            this.sqlConnection.close();
+    public void close() throws SQLException, IOException {
+        try {
+            if (this.filter != null) {
+                this.filter.save(filterLocation);
+            }
+        } finally {
+            if (this.existsStatement != null) {
+                this.existsStatement.close();
+            }
+            if (this.insertStatement != null) {
+                this.insertStatement.close();
+            }
+            if (this.statement != null) {
+                this.statement.close();
+            }
+            if (this.sqlConnection != null) {
+                this.sqlConnection.close();
+            }
         }
     }
 }
@@ -1,21 +1,84 @@
+import org.sqlite.SQLiteConfig;
+
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
- * View sqlite database
+ * View sqlite database.
+ * Every connection is opened read-only, rows are streamed through one large buffered writer
+ * and row counts come from the same pass. Whole database export and row counting run
+ * table by table on a small pool of read-only connections.
  * @author li1345825138
  * @date 2025/2/28
  */
 public class SqliteViewer implements AutoCloseable {
+	// rows fetched from sqlite per round trip
+	private static final int FETCH_SIZE = 10_000;
+
+	// output buffer, console stream would flush on every line
+	private static final int WRITER_BUFFER_SIZE = 1 << 20;
+
+	// memory mapped reads, only address space is reserved until pages are touched
+	private static final long MMAP_SIZE = 1L << 30;
+
+	private final String location;
 	private Connection sqliteConnection;
 	private Statement statement;
 
 	/**
-	 * Get sqlite connection
+	 * Output format
+	 */
+	public enum Format {
+		// values without id, one row per line
+		TEXT("txt"),
+		CSV("csv"),
+		JSONL("jsonl");
+
+		private final String extension;
+
+		Format(String extension) {
+			this.extension = extension;
+		}
+
+		public static Format of(String name) {
+			return valueOf(name.toUpperCase(Locale.ROOT));
+		}
+	}
+
+	/**
+	 * Rows written by one pass
+	 * @param rows number of rows
+	 * @param lastId id of the last row, only when id column is given
+	 */
+	private record WriteResult(long rows, long lastId) {}
+
+	/**
+	 * Get read-only sqlite connection, writes fail even through pragma or attached databases
 	 * @param location location of sqlite database
 	 * @return sqlite database connection
 	 * @throws ClassNotFoundException throw exception if can't get database location
@@ -24,27 +87,376 @@ public class SqliteViewer implements AutoCloseable {
 	private Connection getSQLiteConnection(String location) throws ClassNotFoundException, SQLException {
 		Class.forName("org.sqlite.JDBC");
 		String formatURL = String.format("jdbc:sqlite:%s", location);
-		return DriverManager.getConnection(formatURL);
+		SQLiteConfig config = new SQLiteConfig();
+		config.setReadOnly(true);
+		config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, String.valueOf(MMAP_SIZE));
+		Connection connection = config.createConnection(formatURL);
+		try (Statement pragma = connection.createStatement()) {
+			pragma.execute("PRAGMA query_only = ON");
+		}
+		return connection;
 	}
 
 	/**
 	 * View sqlite database content in console
 	 * @throws SQLException throw exception if any exception cause
 	 */
-	public void viewSqliteDatabase() throws SQLException {
-		String sql = "SELECT * FROM prevPass";
-		try (ResultSet rs = statement.executeQuery(sql)) {
+	public void viewSqliteDatabase() throws SQLException, IOException {
+		viewSqliteDatabase(Format.TEXT, null, -1, 0);
+	}
+
+	/**
+	 * Stream stored passwords with keyset pagination
+	 * @param format output format
+	 * @param outputPath output file, null for console
+	 * @param limit max number of rows, negative for no limit
+	 * @param afterId only rows with id greater than this
+	 * @throws SQLException throw exception if any exception cause
+	 * @throws IOException throw if output can't be written
+	 */
+	public void viewSqliteDatabase(Format format, String outputPath, long limit, long afterId) throws SQLException, IOException {
+		String sql = "SELECT * FROM prevPass WHERE id > ? ORDER BY id LIMIT ?";
+		long start = System.nanoTime();
+		WriteResult result;
+		try (PreparedStatement preparedStatement = sqliteConnection.prepareStatement(sql)) {
+			preparedStatement.setFetchSize(FETCH_SIZE);
+			preparedStatement.setLong(1, afterId);
+			preparedStatement.setLong(2, limit);
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				result = writeTo(outputPath, rs, format, rs.findColumn("id"));
+			}
+		}
+
+		if (format == Format.TEXT && outputPath == null) {
+			System.out.println("Total Records: " + result.rows());
+			return;
+		}
+		printSummary(outputPath, String.format("[+] Exported %d rows in %s, next page: --after %d",
+				result.rows(), rate(result.rows(), start), (result.rows() > 0) ? result.lastId() : afterId));
+	}
+
+	/**
+	 * Run read-only query and stream its rows
+	 * @param sql query
+	 * @param format output format
+	 * @param outputPath output file, null for console
+	 * @throws SQLException throw exception if query fails or tries to write
+	 * @throws IOException throw if output can't be written
+	 */
+	public void runQuery(String sql, Format format, String outputPath) throws SQLException, IOException {
+		long start = System.nanoTime();
+		WriteResult result;
+		try (PreparedStatement preparedStatement = sqliteConnection.prepareStatement(sql)) {
+			preparedStatement.setFetchSize(FETCH_SIZE);
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				result = writeTo(outputPath, rs, format, 0);
+			}
+		}
+		printSummary(outputPath, String.format("[+] Query returned %d rows in %s", result.rows(), rate(result.rows(), start)));
+	}
+
+	/**
+	 * Print every schema object from sqlite_master, tables with their row count.
+	 * Tables are counted in parallel since every count is a full scan.
+	 * @param threads number of read-only connections
+	 * @throws Exception throw if schema can't be read
+	 */
+	public void printSchema(int threads) throws Exception {
+		List<String[]> objects = new ArrayList<>();
+		try (ResultSet rs = statement.executeQuery("SELECT type, name, sql FROM sqlite_master ORDER BY type DESC, name")) {
+			while (rs.next()) {
+				objects.add(new String[]{rs.getString(1), rs.getString(2), rs.getString(3)});
+			}
+		}
+		List<String> tables = new ArrayList<>();
+		for (String[] object : objects) {
+			if ("table".equals(object[0])) tables.add(object[1]);
+		}
+		Map<String, Long> counts = forEachTable(tables, threads, (connection, table) -> {
+			try (Metrics.Stage stage = Metrics.stage(Metrics.DB_QUERY);
+				 Statement countStatement = connection.createStatement();
+				 ResultSet rs = countStatement.executeQuery("SELECT COUNT(*) FROM " + quote(table))) {
+				stage.items(1);
+				return rs.next() ? rs.getLong(1) : 0;
+			}
+		});
+		for (String[] object : objects) {
+			if ("table".equals(object[0])) {
+				System.out.printf("%-8s %s (%d rows)\n", object[0], object[1], counts.get(object[1]));
+			} else {
+				System.out.printf("%-8s %s\n", object[0], object[1]);
+			}
+			if (object[2] != null) System.out.printf("\t%s\n", object[2]);
+		}
+	}
+
+	/**
+	 * Export every table into its own file, tables are exported in parallel
+	 * @param directoryPath output directory
+	 * @param format output format
+	 * @param threads number of read-only connections
+	 * @throws Exception throw if any table can't be exported
+	 */
+	public void exportAll(String directoryPath, Format format, int threads) throws Exception {
+		Path directory = Path.of(directoryPath);
+		Files.createDirectories(directory);
+		List<String> tables = new ArrayList<>();
+		try (ResultSet rs = statement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' ORDER BY name")) {
+			while (rs.next()) {
+				tables.add(rs.getString(1));
+			}
+		}
+		Map<String, String> fileNames = fileNamesOf(tables);
+		long start = System.nanoTime();
+		Map<String, Long> counts = forEachTable(tables, threads, (connection, table) -> {
+			Path output = directory.resolve(fileNames.get(table) + "." + format.extension);
+			try (Statement exportStatement = connection.createStatement()) {
+				exportStatement.setFetchSize(FETCH_SIZE);
+				try (ResultSet rs = exportStatement.executeQuery("SELECT * FROM " + quote(table))) {
+					long rows = writeTo(output.toString(), rs, format, 0).rows();
+					System.out.printf("[+] Exported %s to %s: %d rows\n", table, output.getFileName(), rows);
+					return rows;
+				}
+			}
+		});
+		long total = counts.values().stream().mapToLong(Long::longValue).sum();
+		System.out.printf("[+] Exported %d tables, %d rows in %s\n", tables.size(), total, rate(total, start));
+	}
+
+	/**
+	 * File name of every table, characters a file system may not take are replaced with "_".
+	 * Tables whose name needs no change keep it, a replaced name that is already taken, ignoring case,
+	 * gets a counter suffix like "a_b_2"
+	 * @return table name to file name without extension
+	 */
+	private static Map<String, String> fileNamesOf(List<String> tables) {
+		Map<String, String> fileNames = new LinkedHashMap<>();
+		Set<String> used = new HashSet<>();
+		for (String table : tables) {
+			// sqlite table names are unique ignoring case, so these never collide with each other
+			if (table.matches("[A-Za-z0-9._-]+")) used.add(table.toLowerCase(Locale.ROOT));
+		}
+		for (String table : tables) {
+			String base = table.replaceAll("[^A-Za-z0-9._-]", "_");
+			String fileName = base;
+			if (!base.equals(table)) {
+				for (int counter = 2; !used.add(fileName.toLowerCase(Locale.ROOT)); counter++) {
+					fileName = base + "_" + counter;
+				}
+			}
+			fileNames.put(table, fileName);
+		}
+		return fileNames;
+	}
+
+	/**
+	 * Work on one table with a connection borrowed from the pool
+	 */
+	private interface TableTask {
+		long run(Connection connection, String table) throws Exception;
+	}
+
+	/**
+	 * Run a task for every table on a fixed pool of read-only connections
+	 * @return result of every table in the given order
+	 */
+	private Map<String, Long> forEachTable(List<String> tables, int threads, TableTask task) throws Exception {
+		Map<String, Long> results = new LinkedHashMap<>();
+		if (tables.isEmpty()) return results;
+		int workers = Math.max(1, Math.min(threads, tables.size()));
+		BlockingQueue<Connection> connections = new ArrayBlockingQueue<>(workers);
+		try (ExecutorService executor = Executors.newFixedThreadPool(workers)) {
+			for (int i = 0; i < workers; i++) {
+				connections.add(getSQLiteConnection(location));
+			}
+			Map<String, Future<Long>> futures = new LinkedHashMap<>();
+			for (String table : tables) {
+				futures.put(table, executor.submit(() -> {
+					Connection connection = connections.take();
+					try {
+						return task.run(connection, table);
+					} finally {
+						connections.add(connection);
+					}
+				}));
+			}
+			for (Map.Entry<String, Future<Long>> entry : futures.entrySet()) {
+				results.put(entry.getKey(), entry.getValue().get());
+			}
+		} catch (ExecutionException e) {
+			throw (e.getCause() instanceof Exception cause) ? cause : e;
+		} finally {
+			for (Connection connection : connections) {
+				connection.close();
+			}
+		}
+		return results;
+	}
+
+	private static String quote(String identifier) {
+		return '"' + identifier.replace("\"", "\"\"") + '"';
+	}
+
+	private static String rate(long rows, long start) {
+		double seconds = (System.nanoTime() - start) / 1e9;
+		return String.format("%.1f s, %.0f rows/s", seconds, rows / Math.max(seconds, 1e-9));
+	}
+
+	/**
+	 * Summary goes to stderr when rows went to the console, so piped csv / jsonl stays clean
+	 */
+	private static void printSummary(String outputPath, String summary) {
+		if (outputPath == null) System.err.println(summary);
+		else System.out.println(summary);
+	}
+
+	/**
+	 * Write all rows to a file or to the console
+	 * @param outputPath output file, null for console
+	 */
+	private static WriteResult writeTo(String outputPath, ResultSet rs, Format format, int idColumn) throws SQLException, IOException {
+		if (outputPath != null) {
+			try (Writer writer = Files.newBufferedWriter(Path.of(outputPath), StandardCharsets.UTF_8)) {
+				return writeRows(writer, rs, format, idColumn);
+			}
+		}
+		// console stream stays open for the summary
+		Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), WRITER_BUFFER_SIZE);
+		try {
+			return writeRows(writer, rs, format, idColumn);
+		} finally {
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Write every row of the result set in one pass
+	 * @param idColumn id column, left out of text output and reported as last id, 0 for none
+	 */
+	private static WriteResult writeRows(Writer writer, ResultSet rs, Format format, int idColumn) throws SQLException, IOException {
+		// rows are fetched while they are written, so one stage covers both
+		try (Metrics.Stage stage = Metrics.stage(Metrics.DB_QUERY)) {
+			String[] labels = labelsOf(rs.getMetaData());
+			if (format == Format.CSV) writeCsvHeader(writer, labels);
+			long rows = 0;
+			long lastId = 0;
 			while (rs.next()) {
-				System.out.println(rs.getString("password"));
+				switch (format) {
+					case TEXT -> writeText(writer, rs, labels, idColumn);
+					case CSV -> writeCsv(writer, rs, labels);
+					case JSONL -> writeJson(writer, rs, labels);
+				}
+				if (idColumn > 0) lastId = rs.getLong(idColumn);
+				rows++;
 			}
+			stage.items(rows);
+			return new WriteResult(rows, lastId);
 		}
+	}
 
-		sql = "SELECT COUNT(*) AS total FROM prevPass";
-		try (ResultSet countRs = statement.executeQuery(sql)) {
-			if (countRs.next()) {
-				System.out.println("Total Records: " + countRs.getInt("total"));
+	/**
+	 * Column labels, read once per result set, index 0 is unused
+	 */
+	private static String[] labelsOf(ResultSetMetaData metaData) throws SQLException {
+		String[] labels = new String[metaData.getColumnCount() + 1];
+		for (int i = 1; i < labels.length; i++) {
+			labels[i] = metaData.getColumnLabel(i);
+		}
+		return labels;
+	}
+
+	/**
+	 * Write values except id separated by tab, blob as hex
+	 */
+	private static void writeText(Writer writer, ResultSet rs, String[] labels, int idColumn) throws SQLException, IOException {
+		boolean first = true;
+		for (int i = 1; i < labels.length; i++) {
+			if (i == idColumn) continue;
+			if (!first) writer.write('\t');
+			first = false;
+			Object value = valueOf(rs, i);
+			writer.write(value == null ? "NULL" : value.toString());
+		}
+		writer.write('\n');
+	}
+
+	private static void writeCsvHeader(Writer writer, String[] labels) throws IOException {
+		for (int i = 1; i < labels.length; i++) {
+			if (i > 1) writer.write(',');
+			writeCsvField(writer, labels[i]);
+		}
+		writer.write('\n');
+	}
+
+	private static void writeCsv(Writer writer, ResultSet rs, String[] labels) throws SQLException, IOException {
+		for (int i = 1; i < labels.length; i++) {
+			if (i > 1) writer.write(',');
+			Object value = valueOf(rs, i);
+			if (value != null) writeCsvField(writer, value.toString());
+		}
+		writer.write('\n');
+	}
+
+	/**
+	 * Quote field only when it contains separator, quote or line break
+	 */
+	private static void writeCsvField(Writer writer, String value) throws IOException {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\""));
+		writer.write('"');
+	}
+
+	private static void writeJson(Writer writer, ResultSet rs, String[] labels) throws SQLException, IOException {
+		writer.write('{');
+		for (int i = 1; i < labels.length; i++) {
+			if (i > 1) writer.write(',');
+			writeJsonString(writer, labels[i]);
+			writer.write(':');
+			Object value = valueOf(rs, i);
+			// JSON has no NaN or Infinity, SQLite REAL columns can hold them
+			if (value == null || !isFinite(value)) writer.write("null");
+			else if (value instanceof Number) writer.write(value.toString());
+			else writeJsonString(writer, value.toString());
+		}
+		writer.write("}\n");
+	}
+
+	private static boolean isFinite(Object value) {
+		if (value instanceof Double d) return Double.isFinite(d);
+		if (value instanceof Float f) return Float.isFinite(f);
+		return true;
+	}
+
+	private static void writeJsonString(Writer writer, String value) throws IOException {
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"' -> writer.write("\\\"");
+				case '\\' -> writer.write("\\\\");
+				case '\n' -> writer.write("\\n");
+				case '\r' -> writer.write("\\r");
+				case '\t' -> writer.write("\\t");
+				default -> {
+					if (c < 0x20) writer.write(String.format("\\u%04x", (int) c));
+					else writer.write(c);
+				}
 			}
 		}
+		writer.write('"');
+	}
+
+	/**
+	 * Cell value by its stored type, sqlite columns may hold any type, blob as upper case hex
+	 * @return number, text or null for sql NULL
+	 */
+	private static Object valueOf(ResultSet rs, int column) throws SQLException {
+		Object value = rs.getObject(column);
+		return (value instanceof byte[] bytes) ? FileHasher.toHex(bytes) : value;
 	}
 
 	/**
@@ -55,10 +467,10 @@ public class SqliteViewer implements AutoCloseable {
 	 */
 	public SqliteViewer(String location) throws SQLException, ClassNotFoundException {
 		File file = new File(location);
-		if (file.exists()) {
-			sqliteConnection = getSQLiteConnection(location);
-			statement = sqliteConnection.createStatement();
-		}
+		if (!file.exists()) throw new IllegalArgumentException("Database not found: " + location);
+		this.location = location;
+		sqliteConnection = getSQLiteConnection(location);
+		statement = sqliteConnection.createStatement();
 	}
 
 	/**
@@ -0,0 +1,370 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Stitch images vertically into one image without holding the whole canvas in memory.
+ * The stitched image is a virtual RenderedImage, image writers pull it in scanline strips and
+ * only the source image that covers the current rows is decoded. A source larger than the decode
+ * budget is decoded in horizontal bands that fit, so no source is ever held whole.
+ * Narrower images are padded with white on the right.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class VerticalImageStitcher implements RenderedImage {
+    // rows per tile handed out to image writers
+    private static final int STRIP_HEIGHT = 64;
+
+    // jpeg can't store more rows than this
+    private static final int JPEG_MAX_DIMENSION = 65500;
+
+    private static final int BANDS = 3;
+    private static final byte PADDING = (byte) 0xFF;
+
+    private final List<File> sources;
+    private final DecodeBudget budget;
+    private final int[] offsets;
+    private final int width;
+    private final int height;
+    private final ColorModel colorModel;
+    private final SampleModel sampleModel;
+
+    // the only decoded source image or band of it, starting at source row currentTop and covering currentRows rows
+    private BufferedImage current;
+    private DecodeBudget.Permit currentPermit;
+    private int currentIndex = -1;
+    private int currentTop;
+    private int currentRows;
+    private int[] rgbRow;
+
+    /**
+     * Constructor, reads only image headers to lay out the output
+     * @param sources images from top to bottom
+     * @param budget memory for decoded images
+     * @throws IOException throw if any image header can't be read
+     */
+    public VerticalImageStitcher(List<File> sources, DecodeBudget budget) throws IOException {
+        if (sources == null || sources.isEmpty()) throw new IllegalArgumentException("No image to merge");
+        this.sources = sources;
+        this.budget = budget;
+        this.offsets = new int[sources.size() + 1];
+        long totalHeight = 0;
+        int maxWidth = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            int[] size = readSize(sources.get(i));
+            offsets[i] = (int) totalHeight;
+            totalHeight += size[1];
+            if (totalHeight > Integer.MAX_VALUE) throw new IllegalArgumentException("Merged image is too high");
+            maxWidth = Math.max(maxWidth, size[0]);
+        }
+        offsets[sources.size()] = (int) totalHeight;
+        this.width = maxWidth;
+        this.height = (int) totalHeight;
+        this.colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+                false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+        this.sampleModel = createSampleModel(width, Math.min(STRIP_HEIGHT, height));
+    }
+
+    /**
+     * Write stitched image, format is png when name ends with .png, otherwise jpg
+     * @param output output file
+     * @throws IOException throw if image can't be written
+     */
+    public void write(File output) throws IOException {
+        String format = output.getName().toLowerCase().endsWith(".png") ? "png" : "jpg";
+        if (format.equals("jpg") && (width > JPEG_MAX_DIMENSION || height > JPEG_MAX_DIMENSION
+                || (long) width * height * BANDS > Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException(String.format("Merged image %dx%d is too large for jpg, use .png output", width, height));
+        }
+        try {
+            if (!ImageIO.write(this, format, output)) throw new IOException("No image writer for " + format);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        current = null;
+        currentIndex = -1;
+        if (currentPermit != null) currentPermit.close();
+        currentPermit = null;
+    }
+
+    /**
+     * Decode the band of a source that covers sourceY, the whole source when it fits under the budget
+     */
+    private void decode(int index, int sourceY) throws IOException {
+        release();
+        File file = sources.get(index);
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = (input != null) ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) throw new IOException("Unsupported image: " + file);
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, false, true);
+                int sourceWidth = reader.getWidth(0);
+                int sourceHeight = reader.getHeight(0);
+                long rowBytes = (long) sourceWidth * DecodeBudget.bytesPerPixel(reader);
+                int bandRows = (int) Math.max(1, Math.min(sourceHeight, budget.getCapacity() / rowBytes));
+                int top = sourceY / bandRows * bandRows;
+                int rows = Math.min(bandRows, sourceHeight - top);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (bandRows < sourceHeight) {
+                    if (top == 0) System.err.printf("[!] %s is larger than decode memory, decoding %d rows at a time\n", file.getPath(), bandRows);
+                    param.setSourceRegion(new Rectangle(0, top, sourceWidth, rows));
+                }
+                currentPermit = budget.acquire(rowBytes * rows);
+                current = reader.read(0, param);
+                currentIndex = index;
+                currentTop = top;
+                // rows beyond the decoded height but inside the band are padded, the band is not decoded again for them
+                currentRows = (bandRows < sourceHeight) ? rows : Integer.MAX_VALUE;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Read image size from header only
+     * @return width and height
+     */
+    private static int[] readSize(File file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = (input != null) ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) throw new IOException("Unsupported image: " + file);
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static SampleModel createSampleModel(int width, int height) {
+        return new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, width, height, BANDS, width * BANDS, new int[]{0, 1, 2});
+    }
+
+    /**
+     * Fill one output row as RGB bytes, decoding the source that covers it when needed
+     * @param y output row
+     * @param dest destination array
+     * @param offset start offset in destination
+     */
+    private void fillRow(int y, byte[] dest, int offset) {
+        int index = sourceIndexOf(y);
+        int sourceY = y - offsets[index];
+        if (index != currentIndex || sourceY < currentTop || sourceY - currentTop >= currentRows) {
+            try (Metrics.Stage stage = Metrics.stage(Metrics.DECODE)) {
+                decode(index, sourceY);
+                stage.items(1).bytes(sources.get(index).length());
+            } catch (IOException e) {
+                release();
+                throw new UncheckedIOException(e);
+            }
+            if (rgbRow == null || rgbRow.length < current.getWidth()) rgbRow = new int[current.getWidth()];
+        }
+        int sourceWidth = Math.min(current.getWidth(), width);
+        int bandY = sourceY - currentTop;
+        if (bandY < current.getHeight()) {
+            current.getRGB(0, bandY, sourceWidth, 1, rgbRow, 0, sourceWidth);
+        } else {
+            // header and decoded size disagree, pad the missing rows
+            sourceWidth = 0;
+        }
+        int pos = offset;
+        for (int x = 0; x < sourceWidth; x++) {
+            int rgb = rgbRow[x];
+            dest[pos++] = (byte) (rgb >> 16);
+            dest[pos++] = (byte) (rgb >> 8);
+            dest[pos++] = (byte) rgb;
+        }
+        Arrays.fill(dest, pos, offset + width * BANDS, PADDING);
+    }
+
+    /**
+     * Binary search the source image that covers output row y
+     */
+    private int sourceIndexOf(int y) {
+        if (currentIndex >= 0 && y >= offsets[currentIndex] && y < offsets[currentIndex + 1]) return currentIndex;
+        int low = 0, high = sources.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= y) low = mid;
+            else high = mid - 1;
+        }
+        return low;
+    }
+
+    /**
+     * Data buffer that computes rows on demand, used when a writer asks for the whole raster at once
+     */
+    private class LazyRowBuffer extends DataBuffer {
+        private final byte[] row = new byte[width * BANDS];
+        private int cachedRow = -1;
+
+        LazyRowBuffer() {
+            super(DataBuffer.TYPE_BYTE, width * height * BANDS);
+        }
+
+        @Override
+        public int getElem(int bank, int i) {
+            int y = i / row.length;
+            if (y != cachedRow) {
+                fillRow(y, row, 0);
+                cachedRow = y;
+            }
+            return row[i - y * row.length] & 0xFF;
+        }
+
+        @Override
+        public void setElem(int bank, int i, int val) {
+            throw new UnsupportedOperationException("Stitched image is read only");
+        }
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+        WritableRaster raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, rect.width, rect.height,
+                rect.width * BANDS, BANDS, new int[]{0, 1, 2}, new Point(rect.x, rect.y));
+        copyData(raster);
+        return raster;
+    }
+
+    @Override
+    public Raster getData() {
+        return Raster.createRaster(createSampleModel(width, height), new LazyRowBuffer(), new Point(0, 0));
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) raster = colorModel.createCompatibleWritableRaster(width, height);
+        int minX = Math.max(raster.getMinX(), 0);
+        int maxX = Math.min(raster.getMinX() + raster.getWidth(), width);
+        int minY = Math.max(raster.getMinY(), 0);
+        int maxY = Math.min(raster.getMinY() + raster.getHeight(), height);
+        byte[] row = new byte[width * BANDS];
+        for (int y = minY; y < maxY; y++) {
+            fillRow(y, row, 0);
+            raster.setDataElements(minX, y, maxX - minX, 1, (minX == 0) ? row : Arrays.copyOfRange(row, minX * BANDS, maxX * BANDS));
+        }
+        return raster;
+    }
+
+    @Override
+    public Raster getTile(int tileX, int tileY) {
+        int y = tileY * sampleModel.getHeight();
+        return getData(new Rectangle(0, y, width, Math.min(sampleModel.getHeight(), height - y)));
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return colorModel;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return sampleModel;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return (height + sampleModel.getHeight() - 1) / sampleModel.getHeight();
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return width;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return sampleModel.getHeight();
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+}
@@ -0,0 +1,178 @@
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Convert webp images into jpg format in parallel.
+ * Every image runs on its own virtual thread, a semaphore limits how many images are decoded at the same time.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class WebpToJpgConverter {
+    private final int concurrency;
+    private final float quality;
+    private final boolean force;
+    private final DecodeBudget budget;
+
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * Constructor
+     * @param concurrency max number of images decoded at the same time
+     * @param quality jpeg quality between 0 and 1
+     * @param force convert even when jpg is newer than webp source
+     * @param budget memory for decoded images
+     */
+    public WebpToJpgConverter(int concurrency, float quality, boolean force, DecodeBudget budget) {
+        if (quality < 0f || quality > 1f) throw new IllegalArgumentException("Quality must between 0 and 1");
+        this.concurrency = Math.max(1, concurrency);
+        this.quality = quality;
+        this.force = force;
+        this.budget = budget;
+    }
+
+    /**
+     * Convert every webp image in list and print summary at the end
+     * @param webpList list of webp format images
+     * @return images whose jpg is up to date afterwards, in no particular order
+     */
+    public List<File> convert(List<File> webpList) {
+        if (webpList == null || webpList.isEmpty()) return new ArrayList<>();
+        return convert(webpList.iterator());
+    }
+
+    /**
+     * Convert webp images as they come and print summary at the end.
+     * The next image is only taken when a slot is free, so a scan feeding the iterator is held back
+     * while every slot is busy.
+     * @param webpImages webp format images
+     * @return images whose jpg is up to date afterwards, in no particular order
+     */
+    public List<File> convert(Iterator<File> webpImages) {
+        List<File> succeeded = Collections.synchronizedList(new ArrayList<>());
+        long start = System.nanoTime();
+        Semaphore permits = new Semaphore(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (webpImages.hasNext()) {
+                File webpImage = webpImages.next();
+                permits.acquireUninterruptibly();
+                executor.submit(() -> {
+                    try {
+                        if (convertOne(webpImage)) succeeded.add(webpImage);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[+] Converted %d images (%d skipped, %d failed) in %.1f s, %.1f images/s\n",
+                converted.get(), skipped.get(), failed.get(), seconds, converted.get() / Math.max(seconds, 1e-9));
+        return succeeded;
+    }
+
+    /**
+     * Convert one image, output is written to temp file first so an interrupted run never leaves a
+     * half written jpg that looks up to date
+     * @return true if jpg is up to date, converted or skipped
+     */
+    private boolean convertOne(File webpImage) {
+        File outputJPG = jpgFileOf(webpImage);
+        if (!force && outputJPG.lastModified() >= webpImage.lastModified()) {
+            skipped.incrementAndGet();
+            return true;
+        }
+        Path tempFile = Path.of(outputJPG.getPath() + ".tmp");
+        try {
+            DecodeBudget.Decoded decoded;
+            try (Metrics.Stage stage = Metrics.stage(Metrics.DECODE)) {
+                decoded = budget.read(webpImage, 1);
+                stage.items(1).bytes(webpImage.length());
+            }
+            try (decoded; Metrics.Stage stage = Metrics.stage(Metrics.ENCODE)) {
+                writeJPG(toRGB(decoded.image()), quality, tempFile.toFile());
+                stage.items(1).bytes(Files.size(tempFile));
+            }
+            Files.move(tempFile, outputJPG.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            converted.incrementAndGet();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.printf("[!] Failed: %s (%s)\n", webpImage.getPath(), e.getMessage());
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException deleteError) {
+                System.err.printf("[!] Can't delete: %s (%s)\n", tempFile, deleteError.getMessage());
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Write image as jpg
+     * @param image image without alpha channel
+     * @param quality jpeg quality between 0 and 1
+     * @param output file or output stream
+     */
+    static void writeJPG(BufferedImage image, float quality, Object output) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        // ImageIO would buffer an output stream through a temp file, memory cache keeps in-memory encoding off the disk
+        try (ImageOutputStream outputStream = (output instanceof OutputStream stream)
+                ? new MemoryCacheImageOutputStream(stream) : ImageIO.createImageOutputStream(output)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(outputStream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Jpg has no alpha channel, flatten transparent images onto white background
+     */
+    static BufferedImage toRGB(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) return image;
+        BufferedImage rgbImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = rgbImage.createGraphics();
+        try {
+            g2d.drawImage(image, 0, 0, Color.WHITE, null);
+        } finally {
+            g2d.dispose();
+        }
+        return rgbImage;
+    }
+
+    /**
+     * Replace only the file extension, not every "webp" in the path
+     */
+    private static File jpgFileOf(File webpImage) {
+        String name = webpImage.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = (dot > 0) ? name.substring(0, dot) : name;
+        return new File(webpImage.getParentFile(), baseName + ".jpg");
+    }
+}
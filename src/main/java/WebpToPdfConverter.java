@@ -0,0 +1,155 @@
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Convert webp images straight into one pdf without writing jpg files.
+ * Worker threads decode webp and encode jpg into memory, the calling thread is the only writer and
+ * appends pages in file order. At most queueSize encoded images wait for the writer, so memory stays
+ * flat no matter how many images there are. The jpg bytes are embedded as they are, never decoded again.
+ * @author li1345825138
+ * @date 2026/10/18
+ */
+public class WebpToPdfConverter {
+    private final int threads;
+    private final float quality;
+    private final int queueSize;
+    private final long streamCacheBudget;
+    private final long cacheBudget;
+    private final CompressParameters compression;
+    private final DecodeBudget budget;
+
+    /**
+     * One image encoded as jpg, or the reason it failed
+     */
+    private record Encoded(File source, byte[] jpeg, JpegHeader header, String error) {}
+
+    /**
+     * Constructor
+     * @param threads number of images decoded and encoded at the same time
+     * @param quality jpeg quality between 0 and 1
+     * @param queueSize max number of encoded images waiting for the writer, at least threads
+     * @param streamCacheBudget max main memory bytes for stream data of the document, spills to scratch file after
+     * @param cacheBudget resource cache bytes
+     * @param compression compression of the written file
+     * @param budget memory for decoded images
+     */
+    public WebpToPdfConverter(int threads, float quality, int queueSize, long streamCacheBudget, long cacheBudget,
+                              CompressParameters compression, DecodeBudget budget) {
+        if (quality < 0f || quality > 1f) throw new IllegalArgumentException("Quality must between 0 and 1");
+        this.threads = Math.max(1, threads);
+        this.quality = quality;
+        this.queueSize = Math.max(this.threads, queueSize);
+        this.streamCacheBudget = streamCacheBudget;
+        this.cacheBudget = cacheBudget;
+        this.compression = compression;
+        this.budget = budget;
+    }
+
+    /**
+     * Convert every webp image in list into one page of the pdf, images that can't be read are skipped
+     * @param webpList list of webp images in page order
+     * @param saveName output pdf
+     * @throws Exception throw if pdf can't be written
+     */
+    public void convert(List<File> webpList, String saveName) throws Exception {
+        if (webpList == null || webpList.isEmpty()) return;
+        if (saveName == null || saveName.isEmpty()) saveName = "output.pdf";
+        long start = System.nanoTime();
+        int pages = 0;
+        int failed = 0;
+        Deque<Future<Encoded>> pending = new ArrayDeque<>();
+        try (PDDocument document = new PDDocument(MemoryUsageSetting.setupMixed(streamCacheBudget).streamCache);
+             ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            document.setResourceCache(new BoundedResourceCache(cacheBudget));
+            int next = 0;
+            while (next < webpList.size() || !pending.isEmpty()) {
+                // keep the queue full, then hand the oldest image to the writer
+                while (next < webpList.size() && pending.size() < queueSize) {
+                    File webpImage = webpList.get(next++);
+                    pending.add(executor.submit(() -> encode(webpImage)));
+                }
+                Encoded encoded = take(pending.poll());
+                if (encoded.error() != null) {
+                    failed++;
+                    System.err.printf("[!] Failed: %s (%s)\n", encoded.source().getPath(), encoded.error());
+                    continue;
+                }
+                System.out.printf("[+] Adding: %s...", encoded.source().getPath());
+                addPage(document, encoded);
+                pages++;
+                System.out.println("Done!");
+            }
+            if (pages == 0) throw new IOException("No image could be converted");
+            System.out.printf("[+] Writing output: %s...", saveName);
+            PdfCommands.savePDF(document, saveName, compression);
+            System.out.println("Done!");
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("[+] Converted %d images (%d failed) in %.1f s, %.1f images/s\n",
+                pages, failed, seconds, pages / Math.max(seconds, 1e-9));
+    }
+
+    private static Encoded take(Future<Encoded> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception cause) ? cause : e;
+        }
+    }
+
+    /**
+     * Decode webp and encode it as jpg in memory, runs on a worker thread
+     */
+    private Encoded encode(File webpImage) {
+        try {
+            DecodeBudget.Decoded decoded;
+            try (Metrics.Stage stage = Metrics.stage(Metrics.DECODE)) {
+                decoded = budget.read(webpImage, 1);
+                stage.items(1).bytes(webpImage.length());
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (decoded; Metrics.Stage stage = Metrics.stage(Metrics.ENCODE)) {
+                WebpToJpgConverter.writeJPG(WebpToJpgConverter.toRGB(decoded.image()), quality, output);
+                stage.items(1).bytes(output.size());
+            }
+            byte[] jpeg = output.toByteArray();
+            JpegHeader header = JpegHeader.read(new ByteArrayInputStream(jpeg));
+            if (header == null || !header.canEmbedRaw()) throw new IOException("Encoder wrote unsupported jpg");
+            return new Encoded(webpImage, jpeg, header, null);
+        } catch (IOException | RuntimeException e) {
+            return new Encoded(webpImage, null, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Append one page sized to the image, runs on the writer thread only
+     */
+    private static void addPage(PDDocument document, Encoded encoded) throws IOException {
+        try (Metrics.Stage stage = Metrics.stage("embed")) {
+            PDImageXObject imageXObject = encoded.header().createImage(document, new ByteArrayInputStream(encoded.jpeg()));
+            PDPage page = new PDPage(new PDRectangle(imageXObject.getWidth(), imageXObject.getHeight()));
+            document.addPage(page);
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                contentStream.drawImage(imageXObject, 0, 0, imageXObject.getWidth(), imageXObject.getHeight());
+            }
+            stage.items(1).bytes(encoded.jpeg().length);
+        }
+    }
+}